@@ -0,0 +1,173 @@
+package cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+// Bounded cache of prefix -> top matches, to put in front of any of the
+// autocomplete implementations, e.g.
+//   new PrefixCache(10000, 10, (prefix, k) -> auto.topMatches(prefix, k))
+// Each entry holds the top maxK matches, so any query with k <= maxK is served
+// from it; bigger k go straight to the loader.
+// Call invalidate(term) after the term is added, reweighted or removed.
+//
+// Hits take no lock: a ConcurrentHashMap lookup plus setting the entry's
+// referenced bit. Eviction is CLOCK (second chance), an approximation of LRU:
+// only misses take the eviction lock, to sweep the ring for an entry that was
+// not referenced since the hand last passed it.
+public class PrefixCache {
+	private static final int VERSION_STRIPES = 1024; // power of two
+	
+	private final int maxK;
+	private final BiFunction<String, Integer, ? extends Iterable<String>> loader;
+	private final ConcurrentHashMap<String, Node> map;
+	
+	private final Node[] ring; // CLOCK ring, guarded by evictionLock
+	private int hand;
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	
+	// Bumped by invalidations of the prefixes hashing to each stripe, so a load
+	// racing an invalidation of its own prefix isn't cached, and others are
+	private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	private static final class Node {
+		private final String prefix;
+		private final List<String> matches;
+		private volatile boolean referenced; // hit since the hand last passed
+		
+		Node(String prefix, List<String> matches) {
+			this.prefix = prefix;
+			this.matches = matches;
+		}
+	}
+	
+	// loader returns the top k matches of a prefix (in descending order of weight)
+	public PrefixCache(int maxEntries, int maxK, BiFunction<String, Integer, ? extends Iterable<String>> loader) {
+		if (maxEntries <= 0 || maxK <= 0) {
+			throw new IllegalArgumentException();
+		}
+		if (loader == null) {
+			throw new NullPointerException();
+		}
+		this.maxK = maxK;
+		this.loader = loader;
+		this.map = new ConcurrentHashMap<>(Math.min(maxEntries, 1 << 16));
+		this.ring = new Node[maxEntries];
+	}
+	
+	// Returns the top k matches of prefix, loading and caching them on a miss
+	public List<String> topMatches(String prefix, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("negative k: " + k);
+		}
+		if (k > maxK) { // more than an entry holds
+			misses.increment();
+			return load(prefix, k);
+		}
+		Node node = map.get(prefix);
+		List<String> res;
+		if (node != null) {
+			hits.increment();
+			if (!node.referenced) { // don't dirty the line on every hit
+				node.referenced = true;
+			}
+			res = node.matches;
+		} else {
+			misses.increment();
+			int stripe = stripe(prefix);
+			long seen = versions.get(stripe);
+			res = load(prefix, maxK); // outside any lock: a slow load doesn't stall anyone
+			node = new Node(prefix, res);
+			insert(node);
+			if (versions.get(stripe) != seen) { // invalidated meanwhile: may be stale already
+				map.remove(prefix, node);
+			}
+		}
+		return res.size() > k ? res.subList(0, k) : res;
+	}
+	
+	private List<String> load(String prefix, int k) {
+		List<String> res = new ArrayList<>();
+		for (String term : loader.apply(prefix, k)) {
+			res.add(term);
+		}
+		return Collections.unmodifiableList(res);
+	}
+	
+	// Puts node in a free ring slot, evicting the first unreferenced entry if none
+	private void insert(Node node) {
+		evictionLock.lock();
+		try {
+			for (;;) {
+				Node victim = ring[hand];
+				if (victim != null && map.get(victim.prefix) == victim) { // slot still live
+					if (victim.referenced) {
+						victim.referenced = false; // second chance
+						hand = hand + 1 == ring.length ? 0 : hand + 1;
+						continue;
+					}
+					map.remove(victim.prefix, victim);
+					evictions.increment();
+				}
+				ring[hand] = node; // an entry replaced or invalidated meanwhile frees its slot
+				hand = hand + 1 == ring.length ? 0 : hand + 1;
+				map.put(node.prefix, node);
+				return;
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+	
+	// Drops every cached prefix of term; call after the term changes
+	public void invalidate(String term) {
+		for (int i = 0; i <= term.length(); i++) {
+			String prefix = term.substring(0, i);
+			versions.incrementAndGet(stripe(prefix)); // first, so a racing load sees it
+			map.remove(prefix);
+		}
+	}
+	
+	public void clear() {
+		for (int i = 0; i < VERSION_STRIPES; i++) {
+			versions.incrementAndGet(i);
+		}
+		map.clear();
+	}
+	
+	private static int stripe(String prefix) {
+		int h = prefix.hashCode();
+		return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+	}
+	
+	public int size() {
+		return map.size();
+	}
+	
+	public long hits() {
+		return hits.sum();
+	}
+	
+	public long misses() {
+		return misses.sum();
+	}
+	
+	public long evictions() {
+		return evictions.sum();
+	}
+	
+	@Override
+	public String toString() {
+		return "PrefixCache[size=" + size() + ", hits=" + hits() + ", misses=" + misses()
+				+ ", evictions=" + evictions() + "]";
+	}
+}
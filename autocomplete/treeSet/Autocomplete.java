@@ -3,7 +3,6 @@ package treeSet;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 import java.util.TreeSet;
 
 //refer to http://sujitpal.blogspot.com/2007/02/three-autocomplete-implementations.html
@@ -11,29 +10,64 @@ import java.util.TreeSet;
 public class Autocomplete {
 	private TreeSet<String> words;
 	
+	// Called for each match in order; return false to stop the walk
+	public interface MatchVisitor {
+		boolean visit(String term);
+	}
+	
 	// Initializes an autocomplete data structure from the given terms array
 	public Autocomplete(String[] words) {
 		this.words = new TreeSet<String>();
 		Collections.addAll(this.words, words);
 	}
 
-	// Returns the top k matching terms as a list
+	// Returns all matching terms as a list
 	public Iterable<String> topMatches(String prefix) {
-		List<String> res = new ArrayList<String>();
-		Set<String> tailSet = words.tailSet(prefix);
-		for (String tail : tailSet) {
-			if (tail.startsWith(prefix)) {
-				res.add(tail);
-			} else {
+		return topMatches(prefix, Integer.MAX_VALUE);
+	}
+	
+	// Returns the first k matching terms (in lexicographic order) as a list
+	public List<String> topMatches(String prefix, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("negative k: " + k);
+		}
+		List<String> res = new ArrayList<String>(Math.min(k, 16));
+		if (k == 0) {
+			return res;
+		}
+		forEachMatch(prefix, term -> {
+			res.add(term);
+			return res.size() < k;
+		});
+		return res;
+	}
+	
+	// Fills buffer with the first buffer.length matching terms and returns how many were written.
+	// Allocation-free, so a caller can reuse one buffer across keystrokes.
+	public int topMatches(String prefix, String[] buffer) {
+		int n = 0;
+		// ceiling/higher instead of a tailSet view: no view or iterator per call
+		for (String word = words.ceiling(prefix); n < buffer.length && word != null
+				&& word.startsWith(prefix); word = words.higher(word)) {
+			buffer[n++] = word;
+		}
+		return n;
+	}
+	
+	// Streams the matching terms (in lexicographic order) to visitor until it returns false
+	public void forEachMatch(String prefix, MatchVisitor visitor) {
+		for (String word = words.ceiling(prefix); word != null && word.startsWith(prefix);
+				word = words.higher(word)) {
+			if (!visitor.visit(word)) {
 				break;
 			}
 		}
-		return res;
 	}
 	
 	public static void main(String[] args) {
 		String[] terms = {"china", "calafornia", "japan"};
 		Autocomplete auto = new Autocomplete(terms);
 		System.out.println(auto.topMatches("c"));
+		System.out.println(auto.topMatches("c", 1));
 	}
 }
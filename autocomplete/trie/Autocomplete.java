@@ -1,25 +1,59 @@
+package trie;
+
+import java.util.List;
+
 public class Autocomplete {
+	private final Trie trie = new Trie();
+	
 	// Initializes an autocomplete data structure from the given parallel arrays of terms and weights.
 	public Autocomplete(String[] terms, double[] weights) {
-		
+		if (terms == null || weights == null) {
+			throw new NullPointerException();
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights differ in length");
+		}
+		for (int i = 0; i < terms.length; i++) {
+			trie.put(terms[i], weights[i]);
+		}
 	}
 	
 	// Returns the weight of the term, or 0.0 if no such term.
 	public double weightOf(String term) {
-		
-		return 0.0;
+		double weight = trie.get(term);
+		return weight < 0 ? 0.0 : weight;
 	}
 	
 	// Returns a top matching term, or null if no matching term.
 	public String topMatch(String prefix) {
-	
-		return "";
+		List<String> res = trie.topMatches(prefix, 1);
+		return res.isEmpty() ? null : res.get(0);
 	}
 	
 	// Returns the top k matching terms (in descending order of weight), as an iterable.
     // If fewer than k matches, return all matching terms (in descending order of weight).
 	public Iterable<String> topMatches(String prefix, int k) {
-		
-		return null;
+		if (k < 0) {
+			throw new IllegalArgumentException("negative k: " + k);
+		}
+		return trie.topMatches(prefix, k);
+	}
+	
+	// Returns the top k terms (in descending order of weight) starting with a
+	// string at most maxEdits typos (insertions, deletions, substitutions) away from prefix.
+	public Iterable<String> topMatches(String prefix, int k, int maxEdits) {
+		if (k < 0) {
+			throw new IllegalArgumentException("negative k: " + k);
+		}
+		return trie.topMatches(prefix, k, maxEdits);
+	}
+	
+	public static void main(String[] args) {
+		String[] terms = {"china", "calafornia", "canada", "japan"};
+		double[] weights = {1400, 39, 38, 126};
+		Autocomplete auto = new Autocomplete(terms, weights);
+		System.out.println(auto.topMatches("c", 2));
+		System.out.println(auto.topMatch("j") + " " + auto.weightOf("japan"));
+		System.out.println(auto.topMatches("jpa", 2, 1));
 	}
 }
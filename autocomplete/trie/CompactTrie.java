@@ -0,0 +1,254 @@
+package trie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Refer to http://algs4.cs.princeton.edu/52trie/TST.java.html
+// Ternary search trie packed into parallel primitive arrays: one node is a
+// handful of array slots (about 34 bytes) instead of an object with a Node[26],
+// and keys can hold any char, not just 'a' - 'z'.
+// Node 0 is the null link, so a fresh int[] means "no children".
+public class CompactTrie {
+	private static final int INIT_SIZE = 16;
+	
+	private char[] chars = new char[INIT_SIZE];   // char on the link into each node
+	private int[] lo = new int[INIT_SIZE];        // left / middle / right links
+	private int[] eq = new int[INIT_SIZE];
+	private int[] hi = new int[INIT_SIZE];
+	private double[] value = new double[INIT_SIZE]; // weight of the word ending here, negative for a non-word
+	private double[] max = new double[INIT_SIZE];   // max weight in the whole lo/eq/hi subtree
+	private int[] term = new int[INIT_SIZE];      // term number, or -1 for a non-word
+	private int nodes = 1; // slot 0 is the null link
+	private int root;
+	
+	// All terms back to back in one char[]; term i is termChars[termStart[i], termStart[i + 1]).
+	// Saves the String and char[] headers of millions of separate terms.
+	private char[] termChars = new char[INIT_SIZE];
+	private int[] termStart = new int[INIT_SIZE + 1];
+	private int size; // number of keys
+	
+	private int[] path = new int[INIT_SIZE]; // scratch: nodes visited by put
+	
+	public CompactTrie() {
+		value[0] = max[0] = -1;
+	}
+	
+	// Number of keys in the trie
+	public int size() {
+		return size;
+	}
+	
+	// Returns the weight of the key, or a negative value if no such key.
+	public double get(String key) {
+		if (key.isEmpty()) {
+			return -1;
+		}
+		return value[node(key)];
+	}
+	
+	// Returns the node of the last char of key, or 0 if no such node
+	private int node(String key) {
+		int x = root;
+		int d = 0;
+		while (x != 0) {
+			char c = key.charAt(d);
+			if (c < chars[x]) {
+				x = lo[x];
+			} else if (c > chars[x]) {
+				x = hi[x];
+			} else if (d < key.length() - 1) {
+				x = eq[x];
+				d++;
+			} else {
+				return x;
+			}
+		}
+		return 0;
+	}
+	
+	// Insert key-value pair into the trie.
+	public void put(String key, double val) {
+		if (key.isEmpty()) {
+			throw new IllegalArgumentException("empty key");
+		}
+		if (val < 0) {
+			throw new IllegalArgumentException("negative weight: " + val);
+		}
+		if (root == 0) {
+			root = newNode(key.charAt(0));
+		}
+		int depth = 0;
+		int x = root;
+		int d = 0;
+		for (;;) {
+			if (depth == path.length) {
+				path = Arrays.copyOf(path, 2 * depth + 1);
+			}
+			path[depth++] = x;
+			char c = key.charAt(d);
+			if (c < chars[x]) {
+				if (lo[x] == 0) {
+					int n = newNode(c); // may grow the arrays, so assign afterwards
+					lo[x] = n;
+				}
+				x = lo[x];
+			} else if (c > chars[x]) {
+				if (hi[x] == 0) {
+					int n = newNode(c);
+					hi[x] = n;
+				}
+				x = hi[x];
+			} else if (d < key.length() - 1) {
+				d++;
+				if (eq[x] == 0) {
+					int n = newNode(key.charAt(d));
+					eq[x] = n;
+				}
+				x = eq[x];
+			} else {
+				break;
+			}
+		}
+		if (term[x] < 0) {
+			addTerm(key);
+			term[x] = size - 1;
+		}
+		value[x] = val;
+		// The weight may also go down, so recompute bottom-up along the path
+		for (int i = depth - 1; i >= 0; i--) {
+			int p = path[i];
+			max[p] = Math.max(Math.max(value[p], max[eq[p]]), Math.max(max[lo[p]], max[hi[p]]));
+		}
+	}
+	
+	private void addTerm(String key) {
+		int from = termStart[size];
+		if ((long) from + key.length() > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("more than 2^31 term chars");
+		}
+		if (from + key.length() > termChars.length) {
+			long grown = Math.max(2L * termChars.length + 1, from + key.length());
+			termChars = Arrays.copyOf(termChars, (int) Math.min(grown, Integer.MAX_VALUE - 8));
+		}
+		key.getChars(0, key.length(), termChars, from);
+		if (size + 2 > termStart.length) {
+			termStart = Arrays.copyOf(termStart, 2 * termStart.length + 1);
+		}
+		termStart[++size] = from + key.length();
+	}
+	
+	private String term(int i) {
+		return new String(termChars, termStart[i], termStart[i + 1] - termStart[i]);
+	}
+	
+	private int newNode(char c) {
+		if (nodes == chars.length) {
+			int newSize = nodes > (Integer.MAX_VALUE - 1) / 2 ? Integer.MAX_VALUE
+					: 2 * nodes + 1;
+			chars = Arrays.copyOf(chars, newSize);
+			lo = Arrays.copyOf(lo, newSize);
+			eq = Arrays.copyOf(eq, newSize);
+			hi = Arrays.copyOf(hi, newSize);
+			value = Arrays.copyOf(value, newSize);
+			max = Arrays.copyOf(max, newSize);
+			term = Arrays.copyOf(term, newSize);
+		}
+		int x = nodes++;
+		chars[x] = c;
+		value[x] = max[x] = -1;
+		term[x] = -1;
+		return x;
+	}
+	
+	// Releases the slack left by doubling once the trie is fully built
+	public void trimToSize() {
+		chars = Arrays.copyOf(chars, nodes);
+		lo = Arrays.copyOf(lo, nodes);
+		eq = Arrays.copyOf(eq, nodes);
+		hi = Arrays.copyOf(hi, nodes);
+		value = Arrays.copyOf(value, nodes);
+		max = Arrays.copyOf(max, nodes);
+		term = Arrays.copyOf(term, nodes);
+		termChars = Arrays.copyOf(termChars, termStart[size]);
+		termStart = Arrays.copyOf(termStart, size + 1);
+	}
+	
+	// Returns the top k keys that start with "prefix" (in descending order of weight)
+	public List<String> topMatches(String prefix, int k) {
+		if (k <= 0) {
+			return new ArrayList<>();
+		}
+		TopK search = new TopK() {
+			void expand(Entry entry) {
+				int x = entry.index;
+				word(null, x, value[x]);
+				push(this, lo[x]);
+				push(this, eq[x]);
+				push(this, hi[x]);
+			}
+			
+			String key(Entry entry) {
+				return term(term[entry.index]);
+			}
+		};
+		if (prefix.isEmpty()) {
+			push(search, root);
+		} else {
+			int x = node(prefix);
+			if (x == 0) {
+				return new ArrayList<>();
+			}
+			// Only the middle link continues the prefix; lo / hi are siblings
+			search.word(null, x, value[x]);
+			push(search, eq[x]);
+		}
+		return search.collect(k);
+	}
+	
+	private void push(TopK search, int x) {
+		if (x != 0) {
+			search.subtree(null, x, max[x], null);
+		}
+	}
+	
+	// Writes the trie in the layout read back by MappedAutocomplete: a header,
+	// then fixed-size node records, then the term offsets and the term chars.
+	// Written to a temp file first so readers never map a half-written index.
+	void write(Path file) throws IOException {
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+			long chars = termStart[size];
+			out.writeInt(MappedAutocomplete.MAGIC);
+			out.writeInt(MappedAutocomplete.VERSION);
+			out.writeInt(nodes);
+			out.writeInt(root);
+			out.writeInt(size);
+			out.writeLong(chars);
+			out.writeInt(0); // pad the header to HEADER_SIZE
+			for (int x = 0; x < nodes; x++) {
+				out.writeDouble(max[x]);
+				out.writeDouble(value[x]);
+				out.writeInt(lo[x]);
+				out.writeInt(eq[x]);
+				out.writeInt(hi[x]);
+				out.writeInt(term[x]);
+				out.writeChar(this.chars[x]);
+			}
+			for (int i = 0; i <= size; i++) {
+				out.writeLong(termStart[i]);
+			}
+			for (int i = 0; i < chars; i++) {
+				out.writeChar(termChars[i]);
+			}
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
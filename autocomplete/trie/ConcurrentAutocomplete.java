@@ -0,0 +1,216 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Autocomplete that takes inserts, weight updates and deletes while queries run.
+// The trie is persistent: nodes are never modified, a write copies only the
+// nodes on the path from the root to the term and then publishes the new root
+// through a volatile field. Readers just read the root once and walk an
+// immutable snapshot, so they take no locks and never see a half-applied write.
+// Writers are serialized by one lock.
+public class ConcurrentAutocomplete {
+	private static final Node EMPTY = new Node(-1, null, new char[0], new Node[0]);
+	
+	private volatile Node root = EMPTY;
+	private final ReentrantLock writeLock = new ReentrantLock();
+	
+	private static final class Node {
+		private final double value; // weight of the word ending here, negative for a non-word
+		private final double max;   // max weight of any word in this subtree
+		private final int count;    // number of words in this subtree
+		private final String key;   // the word ending here
+		private final char[] labels;   // sorted chars of the children
+		private final Node[] children; // parallel to labels
+		
+		Node(double value, String key, char[] labels, Node[] children) {
+			this.value = value;
+			this.key = key;
+			this.labels = labels;
+			this.children = children;
+			double max = value;
+			int count = value >= 0 ? 1 : 0;
+			for (Node child : children) {
+				max = Math.max(max, child.max);
+				count += child.count;
+			}
+			this.max = max;
+			this.count = count;
+		}
+		
+		Node child(char c) {
+			int i = Arrays.binarySearch(labels, c);
+			return i < 0 ? null : children[i];
+		}
+	}
+	
+	public ConcurrentAutocomplete() {}
+	
+	// Initializes from the given parallel arrays of terms and weights.
+	public ConcurrentAutocomplete(String[] terms, double[] weights) {
+		if (terms == null || weights == null) {
+			throw new NullPointerException();
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights differ in length");
+		}
+		for (int i = 0; i < terms.length; i++) {
+			put(terms[i], weights[i]);
+		}
+	}
+	
+	// Inserts the term, or updates its weight if already present.
+	public void put(String term, double weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException("negative weight: " + weight);
+		}
+		writeLock.lock();
+		try {
+			root = put(root, term, 0, weight);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	// Removes the term. Returns false if no such term.
+	public boolean remove(String term) {
+		writeLock.lock();
+		try {
+			Node old = root;
+			Node node = remove(old, term, 0);
+			if (node == old) {
+				return false;
+			}
+			root = node == null ? EMPTY : node;
+			return true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	private static Node put(Node node, String key, int index, double val) {
+		if (node == null) {
+			node = EMPTY;
+		}
+		if (index == key.length()) {
+			return new Node(val, key, node.labels, node.children);
+		}
+		char c = key.charAt(index);
+		int i = Arrays.binarySearch(node.labels, c);
+		if (i >= 0) {
+			Node[] children = node.children.clone();
+			children[i] = put(children[i], key, index + 1, val);
+			return new Node(node.value, node.key, node.labels, children);
+		}
+		// Insert a new child at -(i + 1) to keep labels sorted
+		int at = -(i + 1);
+		int n = node.labels.length;
+		char[] labels = new char[n + 1];
+		Node[] children = new Node[n + 1];
+		System.arraycopy(node.labels, 0, labels, 0, at);
+		System.arraycopy(node.children, 0, children, 0, at);
+		labels[at] = c;
+		children[at] = put(null, key, index + 1, val);
+		System.arraycopy(node.labels, at, labels, at + 1, n - at);
+		System.arraycopy(node.children, at, children, at + 1, n - at);
+		return new Node(node.value, node.key, labels, children);
+	}
+	
+	// Returns the new node, null if it became empty, or the same node if the key is absent
+	private static Node remove(Node node, String key, int index) {
+		Node res;
+		if (index == key.length()) {
+			if (node.value < 0) {
+				return node;
+			}
+			res = new Node(-1, null, node.labels, node.children);
+		} else {
+			int i = Arrays.binarySearch(node.labels, key.charAt(index));
+			if (i < 0) {
+				return node;
+			}
+			Node child = remove(node.children[i], key, index + 1);
+			if (child == node.children[i]) {
+				return node;
+			}
+			if (child != null) {
+				Node[] children = node.children.clone();
+				children[i] = child;
+				res = new Node(node.value, node.key, node.labels, children);
+			} else { // Drop the empty child
+				int n = node.labels.length;
+				char[] labels = new char[n - 1];
+				Node[] children = new Node[n - 1];
+				System.arraycopy(node.labels, 0, labels, 0, i);
+				System.arraycopy(node.children, 0, children, 0, i);
+				System.arraycopy(node.labels, i + 1, labels, i, n - i - 1);
+				System.arraycopy(node.children, i + 1, children, i, n - i - 1);
+				res = new Node(node.value, node.key, labels, children);
+			}
+		}
+		return res.count == 0 ? null : res;
+	}
+	
+	// Number of terms
+	public int size() {
+		return root.count;
+	}
+	
+	// Returns the weight of the term, or 0.0 if no such term.
+	public double weightOf(String term) {
+		Node node = get(root, term);
+		return node == null || node.value < 0 ? 0.0 : node.value;
+	}
+	
+	private static Node get(Node node, String key) {
+		for (int i = 0; node != null && i < key.length(); i++) {
+			node = node.child(key.charAt(i));
+		}
+		return node;
+	}
+	
+	// Returns a top matching term, or null if no matching term.
+	public String topMatch(String prefix) {
+		List<String> res = topMatches(prefix, 1);
+		return res.isEmpty() ? null : res.get(0);
+	}
+	
+	// Returns the top k matching terms (in descending order of weight),
+	// all taken from one consistent snapshot.
+	public List<String> topMatches(String prefix, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("negative k: " + k);
+		}
+		Node node = get(root, prefix);
+		if (node == null || k == 0) {
+			return new ArrayList<>();
+		}
+		TopK search = new TopK() {
+			void expand(Entry entry) {
+				Node current = (Node) entry.node;
+				word(current, 0, current.value);
+				for (Node child : current.children) {
+					subtree(child, 0, child.max, null);
+				}
+			}
+			
+			String key(Entry entry) {
+				return ((Node) entry.node).key;
+			}
+		};
+		search.subtree(node, 0, node.max, null);
+		return search.collect(k);
+	}
+	
+	public static void main(String[] args) {
+		String[] terms = {"china", "calafornia", "canada", "japan"};
+		double[] weights = {1400, 39, 38, 126};
+		ConcurrentAutocomplete auto = new ConcurrentAutocomplete(terms, weights);
+		System.out.println(auto.topMatches("c", 2));
+		auto.put("canada", 2000);
+		auto.remove("china");
+		System.out.println(auto.topMatches("c", 2) + " " + auto.size());
+	}
+}
@@ -0,0 +1,201 @@
+package trie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read-only autocomplete answered straight off a memory-mapped index file.
+// build() runs once offline; open() only maps the file, so startup does no
+// sorting or deserialization, and processes mapping the same file share one
+// copy in the page cache.
+// Each section (nodes, term offsets, term chars) is mapped separately, so each
+// must stay under 2GB (about 63M trie nodes).
+public class MappedAutocomplete {
+	static final int MAGIC = 0x41435452; // "ACTR"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int NODE_SIZE = 34;
+	
+	// Offsets of the fields inside a node record, in the order CompactTrie.write puts them
+	private static final int MAX = 0;
+	private static final int VALUE = 8;
+	private static final int LO = 16;
+	private static final int EQ = 20;
+	private static final int HI = 24;
+	private static final int TERM = 28;
+	private static final int CHAR = 32;
+	
+	private final ByteBuffer nodes;   // fixed-size node records
+	private final ByteBuffer offsets; // terms + 1 longs: start of each term in chars
+	private final ByteBuffer chars;   // all terms back to back, UTF-16
+	private final int root;
+	private final int size;
+	
+	private MappedAutocomplete(ByteBuffer nodes, ByteBuffer offsets, ByteBuffer chars, int root, int size) {
+		this.nodes = nodes;
+		this.offsets = offsets;
+		this.chars = chars;
+		this.root = root;
+		this.size = size;
+	}
+	
+	// Builds the index for the given parallel arrays of terms and weights and writes it to file.
+	public static void build(String[] terms, double[] weights, Path file) throws IOException {
+		if (terms == null || weights == null) {
+			throw new NullPointerException();
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights differ in length");
+		}
+		CompactTrie trie = new CompactTrie();
+		for (int i = 0; i < terms.length; i++) {
+			trie.put(terms[i], weights[i]);
+		}
+		trie.write(file);
+	}
+	
+	// Maps an index written by build(). The mapping stays valid after the channel is closed.
+	public static MappedAutocomplete open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("not an autocomplete index: " + file);
+			}
+			int nodeCount = header.getInt(8);
+			int root = header.getInt(12);
+			int size = header.getInt(16);
+			long charCount = header.getLong(20);
+			
+			long position = HEADER_SIZE;
+			long nodeBytes = (long) nodeCount * NODE_SIZE;
+			long offsetBytes = 8L * (size + 1);
+			long charBytes = 2 * charCount;
+			if (position + nodeBytes + offsetBytes + charBytes != channel.size()) {
+				throw new IOException("truncated autocomplete index: " + file);
+			}
+			ByteBuffer nodes = map(channel, position, nodeBytes);
+			position += nodeBytes;
+			ByteBuffer offsets = map(channel, position, offsetBytes);
+			position += offsetBytes;
+			ByteBuffer chars = map(channel, position, charBytes);
+			return new MappedAutocomplete(nodes, offsets, chars, root, size);
+		}
+	}
+	
+	private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("index section larger than 2GB: " + length + " bytes");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+	}
+	
+	// Number of terms in the index
+	public int size() {
+		return size;
+	}
+	
+	// Returns the weight of the term, or 0.0 if no such term.
+	public double weightOf(String term) {
+		if (term.isEmpty()) {
+			return 0.0;
+		}
+		double weight = nodes.getDouble(node(term) * NODE_SIZE + VALUE);
+		return weight < 0 ? 0.0 : weight;
+	}
+	
+	// Returns a top matching term, or null if no matching term.
+	public String topMatch(String prefix) {
+		List<String> res = topMatches(prefix, 1);
+		return res.isEmpty() ? null : res.get(0);
+	}
+	
+	// Returns the top k matching terms (in descending order of weight).
+	// Same best-first walk as CompactTrie.topMatches, reading the records in place.
+	public List<String> topMatches(String prefix, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("negative k: " + k);
+		}
+		if (k == 0) {
+			return new ArrayList<>();
+		}
+		TopK search = new TopK() {
+			void expand(Entry entry) {
+				int x = entry.index;
+				word(null, x, nodes.getDouble(x * NODE_SIZE + VALUE));
+				push(this, link(x, LO));
+				push(this, link(x, EQ));
+				push(this, link(x, HI));
+			}
+			
+			String key(Entry entry) {
+				return term(nodes.getInt(entry.index * NODE_SIZE + TERM));
+			}
+		};
+		if (prefix.isEmpty()) {
+			push(search, root);
+		} else {
+			int x = node(prefix);
+			if (x == 0) {
+				return new ArrayList<>();
+			}
+			search.word(null, x, nodes.getDouble(x * NODE_SIZE + VALUE));
+			push(search, link(x, EQ));
+		}
+		return search.collect(k);
+	}
+	
+	private void push(TopK search, int x) {
+		if (x != 0) {
+			search.subtree(null, x, nodes.getDouble(x * NODE_SIZE + MAX), null);
+		}
+	}
+	
+	private int link(int x, int field) {
+		return nodes.getInt(x * NODE_SIZE + field);
+	}
+	
+	// Returns the node of the last char of key, or 0 if no such node
+	private int node(String key) {
+		int x = root;
+		int d = 0;
+		while (x != 0) {
+			char c = key.charAt(d);
+			char nodeChar = nodes.getChar(x * NODE_SIZE + CHAR);
+			if (c < nodeChar) {
+				x = link(x, LO);
+			} else if (c > nodeChar) {
+				x = link(x, HI);
+			} else if (d < key.length() - 1) {
+				x = link(x, EQ);
+				d++;
+			} else {
+				return x;
+			}
+		}
+		return 0;
+	}
+	
+	private String term(int i) {
+		int from = (int) offsets.getLong(8 * i);
+		int to = (int) offsets.getLong(8 * (i + 1));
+		char[] res = new char[to - from];
+		for (int j = 0; j < res.length; j++) {
+			res[j] = chars.getChar(2 * (from + j));
+		}
+		return new String(res);
+	}
+	
+	public static void main(String[] args) throws IOException {
+		String[] terms = {"china", "calafornia", "canada", "japan"};
+		double[] weights = {1400, 39, 38, 126};
+		Path file = Path.of(args.length > 0 ? args[0] : "autocomplete.idx");
+		build(terms, weights, file);
+		MappedAutocomplete auto = open(file);
+		System.out.println(auto.topMatches("c", 2));
+		System.out.println(auto.topMatch("j") + " " + auto.weightOf("japan"));
+	}
+}
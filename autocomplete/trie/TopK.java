@@ -0,0 +1,70 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Best-first top-k search shared by the tries.
+// A subtree enters the queue weighted by the max weight cached at its root and
+// is only opened once nothing heavier is left, so a short prefix costs
+// O(k * fanout * log) instead of O(subtree size). Each trie says how to open a
+// subtree (expand) and how to read back the word of a node (key).
+abstract class TopK {
+	// Either a whole subtree (bounded by its max weight) or a single word.
+	// Object tries set node, the packed ones the slot index.
+	static final class Entry implements Comparable<Entry> {
+		final Object node;
+		final int index;
+		final boolean word;
+		final double weight;
+		final int[] row; // fuzzy walk: edit distances of the path so far, null once matched
+		
+		Entry(Object node, int index, boolean word, double weight, int[] row) {
+			this.node = node;
+			this.index = index;
+			this.word = word;
+			this.weight = weight;
+			this.row = row;
+		}
+		
+		// Bigger weight first
+		public int compareTo(Entry other) {
+			return Double.compare(other.weight, weight);
+		}
+	}
+	
+	private final PriorityQueue<Entry> pq = new PriorityQueue<>();
+	
+	// Queues the word ending at the node, if it is one (value >= 0)
+	final void word(Object node, int index, double value) {
+		if (value >= 0) {
+			pq.add(new Entry(node, index, true, value, null));
+		}
+	}
+	
+	// Queues the subtree rooted at the node, unless it holds no words (max < 0)
+	final void subtree(Object node, int index, double max, int[] row) {
+		if (max >= 0) {
+			pq.add(new Entry(node, index, false, max, row));
+		}
+	}
+	
+	// Queues the word of a subtree entry and its children
+	abstract void expand(Entry entry);
+	
+	abstract String key(Entry entry);
+	
+	// Returns the k heaviest words reachable from what has been queued so far
+	final List<String> collect(int k) {
+		List<String> res = new ArrayList<>();
+		while (!pq.isEmpty() && res.size() < k) {
+			Entry entry = pq.poll();
+			if (entry.word) {
+				res.add(key(entry));
+			} else {
+				expand(entry);
+			}
+		}
+		return res;
+	}
+}
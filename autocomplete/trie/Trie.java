@@ -0,0 +1,201 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Refer to http://algs4.cs.princeton.edu/52trie/TrieST.java.html and
+// http://www.cs.princeton.edu/courses/archive/fall13/cos226/checklist/autocomplete.html
+
+//class Word implements Comparable<Word> {
+//	private String word;
+//	private double weight;
+//	public Word() {}
+//	public Word(String word, double weight) {
+//		this.word = word;
+//		this.weight = weight;
+//	}
+//
+//	public int compareTo(Word other) {
+//		return (int) Math.ceil(other.weight - weight);
+//	}
+//
+//	public String toString() {
+//		return word;
+//	}	
+//}
+
+// Keys are lowercase words ('a' - 'z'); weights are non-negative.
+// Only put rejects other characters; lookups simply don't match them.
+public class Trie {
+	private static final int R = 26; // alphabet size
+	
+	private Node root; // root of a tire
+	private static class Node {
+		private double value = -1; // can store the weight; negative for a non-word
+		private double max = -1; // max weight of any word in this subtree
+		private String key; // the word ending here, so collecting never rebuilds it
+		private Node[] next = new Node[R];
+	}
+	
+	// Returns the weight of the key, or a negative value if no such key.
+	public double get(String key) {
+		Node node = get(root, key, 0);
+		return node == null ? -1 : node.value;
+	}
+	
+	// Returns the top k keys that start with "prefix" (in descending order of weight)
+	// Best-first over the cached subtree max weights (see TopK).
+	public List<String> topMatches(String prefix, int k) {
+		Node node = get(root, prefix, 0);
+		if (node == null || k <= 0) {
+			return new ArrayList<>();
+		}
+		TopK search = new TopK() {
+			void expand(Entry entry) {
+				Node current = (Node) entry.node;
+				word(current, 0, current.value);
+				for (Node child : current.next) {
+					if (child != null) {
+						subtree(child, 0, child.max, null);
+					}
+				}
+			}
+			
+			String key(Entry entry) {
+				return ((Node) entry.node).key;
+			}
+		};
+		search.subtree(node, 0, node.max, null);
+		return search.collect(k);
+	}
+	
+	// Returns the top k keys (in descending order of weight) that start with a
+	// string within maxEdits edits (Levenshtein) of "prefix".
+	// The walk keeps one row of the edit distance table per trie path, drops a
+	// branch once every entry of its row exceeds maxEdits, and once the whole
+	// prefix is matched (row[m] <= maxEdits) takes the node's subtree as is.
+	// Branches are still opened best-first by their cached max weight.
+	public List<String> topMatches(String prefix, int k, int maxEdits) {
+		if (maxEdits < 0) {
+			throw new IllegalArgumentException("negative maxEdits: " + maxEdits);
+		}
+		if (maxEdits == 0) {
+			return topMatches(prefix, k);
+		}
+		if (root == null || k <= 0) {
+			return new ArrayList<>();
+		}
+		int m = prefix.length();
+		int[] first = new int[m + 1];
+		for (int j = 0; j <= m; j++) {
+			first[j] = j;
+		}
+		TopK search = new TopK() {
+			void expand(Entry entry) {
+				Node current = (Node) entry.node;
+				int[] row = entry.row;
+				if (row == null || row[m] <= maxEdits) { // prefix matched: every word below counts
+					word(current, 0, current.value);
+					for (Node child : current.next) {
+						if (child != null) {
+							subtree(child, 0, child.max, null);
+						}
+					}
+					return;
+				}
+				for (int i = 0; i < R; i++) {
+					Node child = current.next[i];
+					if (child == null || child.max < 0) {
+						continue;
+					}
+					int[] next = nextRow(row, prefix, (char) ('a' + i));
+					if (min(next) <= maxEdits) {
+						subtree(child, 0, child.max, next);
+					}
+				}
+			}
+			
+			String key(Entry entry) {
+				return ((Node) entry.node).key;
+			}
+		};
+		search.subtree(root, 0, root.max, first);
+		return search.collect(k);
+	}
+	
+	// Edit distances from prefix[0..j) to the current path extended by c
+	private static int[] nextRow(int[] row, String prefix, char c) {
+		int[] next = new int[row.length];
+		next[0] = row[0] + 1;
+		for (int j = 1; j < row.length; j++) {
+			int replace = row[j - 1] + (prefix.charAt(j - 1) == c ? 0 : 1);
+			next[j] = Math.min(replace, Math.min(row[j] + 1, next[j - 1] + 1));
+		}
+		return next;
+	}
+	
+	private static int min(int[] row) {
+		int min = row[0];
+		for (int d : row) {
+			min = Math.min(min, d);
+		}
+		return min;
+	}
+	
+	private Node get(Node node, String key, int index) {
+		if (node == null) {
+			return null;
+		}
+		if (index == key.length()) {
+			return node;
+		}
+		char c = key.charAt(index);
+		if (c < 'a' || c > 'z') { // queries are user input: no such key, not an error
+			return null;
+		}
+		return get(node.next[c - 'a'], key, index + 1);
+	}
+	
+	// Insert key-value pair into the trie.
+	public void put(String key, double value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("negative weight: " + value);
+		}
+		for (int i = 0; i < key.length(); i++) {
+			indexOf(key.charAt(i)); // validate before touching the trie
+		}
+		root = put(root, key, value, 0);
+	}
+	
+	private Node put(Node node, String key, double val, int index) {
+		if (node == null) {
+			node = new Node();
+		}
+		if (index == key.length()) {
+			node.value = val;
+			node.key = key;
+		} else {
+			int c = indexOf(key.charAt(index));
+			node.next[c] = put(node.next[c], key, val, index + 1);
+		}
+		updateMax(node); // the weight may also go down, so recompute
+		return node;
+	}
+	
+	private static void updateMax(Node node) {
+		double max = node.value;
+		for (Node child : node.next) {
+			if (child != null && child.max > max) {
+				max = child.max;
+			}
+		}
+		node.max = max;
+	}
+	
+	private static int indexOf(char c) {
+		if (c < 'a' || c > 'z') {
+			throw new IllegalArgumentException("not a lowercase letter: " + c);
+		}
+		return c - 'a';
+	}
+}
@@ -0,0 +1,136 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import trie.Autocomplete;
+import trie.MappedAutocomplete;
+
+/**
+ * topMatches(prefix, 10) on the autocomplete implementations.
+ * 
+ * The dictionary is synthetic but shaped like real query logs: words are
+ * drawn with English letter frequencies, weights follow Zipf's law, and the
+ * prefixes queried are the first 1 - 4 chars of terms picked by weight, so
+ * short, popular prefixes dominate as they do for a typeahead box.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutocompleteBenchmark {
+    private static final int K = 10;
+    private static final int PREFIXES = 1 << 16;
+    private static final String LETTERS = "etaoinshrdlcumwfgypbvkjxqz";
+    // Relative frequency (per mille) of each letter above in English text
+    private static final int[] FREQUENCIES = { 127, 91, 82, 75, 70, 67, 63, 61, 60, 43, 40,
+            28, 28, 24, 24, 22, 20, 20, 19, 15, 10, 8, 2, 2, 1, 1 };
+    
+    @Param({ "100000", "1000000" })
+    public int terms;
+    
+    private String[] prefixes;
+    
+    private treeSet.Autocomplete treeSet;
+    private Autocomplete trie;
+    private MappedAutocomplete mapped;
+    private Path index;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        Set<String> seen = new HashSet<>();
+        String[] words = new String[terms];
+        double[] weights = new double[terms];
+        for (int i = 0; i < terms; ) {
+            String word = word(random);
+            if (seen.add(word)) {
+                words[i] = word;
+                weights[i] = 1e9 / (i + 1); // Zipf: the i-th most popular term
+                i++;
+            }
+        }
+        prefixes = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            String word = words[zipf(random, terms)];
+            prefixes[i] = word.substring(0, Math.min(word.length(), 1 + random.nextInt(4)));
+        }
+        treeSet = new treeSet.Autocomplete(words);
+        trie = new Autocomplete(words, weights);
+        index = Files.createTempFile("autocomplete", ".idx");
+        MappedAutocomplete.build(words, weights, index);
+        mapped = MappedAutocomplete.open(index);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(index);
+    }
+    
+    private static String word(Random random) {
+        int length = 3 + random.nextInt(10);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int r = random.nextInt(1000);
+            int c = 0;
+            while (c < FREQUENCIES.length - 1 && r >= FREQUENCIES[c]) {
+                r -= FREQUENCIES[c++];
+            }
+            sb.append(LETTERS.charAt(c));
+        }
+        return sb.toString();
+    }
+    
+    // Index in [0, n) with P(i) proportional to 1 / (i + 1), by inverting the harmonic CDF
+    private static int zipf(Random random, int n) {
+        double gamma = 0.5772156649; // H(n) ~ ln(n) + gamma
+        double i = Math.exp(random.nextDouble() * (Math.log(n) + gamma) - gamma) - 1;
+        return (int) Math.max(0, Math.min(n - 1, i));
+    }
+    
+    // Per-thread position in the shared prefix sample
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+        
+        String prefix(AutocompleteBenchmark state) {
+            return state.prefixes[next++ & (PREFIXES - 1)];
+        }
+    }
+    
+    @Benchmark
+    public Object treeSet(Cursor cursor) {
+        return treeSet.topMatches(cursor.prefix(this), K);
+    }
+    
+    @Benchmark
+    public Object trie(Cursor cursor) {
+        return trie.topMatches(cursor.prefix(this), K);
+    }
+    
+    @Benchmark
+    public Object mapped(Cursor cursor) {
+        return mapped.topMatches(cursor.prefix(this), K);
+    }
+}
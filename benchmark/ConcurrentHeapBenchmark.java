@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import heap.MultiQueue;
+import heap.SkipListQueue;
+
+/**
+ * Shared priority queue under contention: every thread adds a random key and
+ * removes one, on a queue prefilled with size keys. Compares the relaxed
+ * MultiQueue and the strict SkipListQueue with PriorityBlockingQueue (one lock).
+ * 
+ *   java -jar target/benchmarks.jar ConcurrentHeapBenchmark -t 64
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ConcurrentHeapBenchmark {
+    @Param({ "MultiQueue", "SkipListQueue", "PriorityBlockingQueue" })
+    public String impl;
+    
+    @Param({ "100000" })
+    public int size;
+    
+    private MultiQueue<Integer> multiQueue;
+    private SkipListQueue<Integer> skipList;
+    private PriorityBlockingQueue<Integer> blocking;
+    
+    @Setup
+    public void setUp() {
+        multiQueue = new MultiQueue<>();
+        skipList = new SkipListQueue<>();
+        blocking = new PriorityBlockingQueue<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            int key = random.nextInt();
+            switch (impl) {
+            case "MultiQueue":
+                multiQueue.add(key);
+                break;
+            case "SkipListQueue":
+                skipList.add(key);
+                break;
+            default:
+                blocking.add(key);
+            }
+        }
+    }
+    
+    @Benchmark
+    public Integer addRemove() {
+        Integer key = ThreadLocalRandom.current().nextInt();
+        switch (impl) {
+        case "MultiQueue":
+            multiQueue.add(key);
+            return multiQueue.poll();
+        case "SkipListQueue":
+            skipList.add(key);
+            return skipList.poll();
+        default:
+            blocking.add(key);
+            return blocking.poll();
+        }
+    }
+}
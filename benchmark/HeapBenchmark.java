@@ -0,0 +1,96 @@
+package benchmark;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import heap.Heap;
+import heap.IntHeap;
+
+/**
+ * Heap and IntHeap add/remove against java.util.PriorityQueue: each invocation adds size
+ * random keys and removes them all again, so the time per op is
+ * (score / (2 * size)). Only the Heap benchmarks run once per arity.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark {
+    @Param({ "1000", "1000000" })
+    public int size;
+    
+    private Integer[] keys;
+    private int[] intKeys;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new Integer[size];
+        intKeys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = intKeys[i] = random.nextInt();
+        }
+    }
+    
+    // Its own state, so the benchmarks that ignore arity aren't repeated for each value
+    @State(Scope.Thread)
+    public static class Arity {
+        @Param({ "2", "4", "8" })
+        public int arity;
+    }
+    
+    @Benchmark
+    public void heap(Arity arity, Blackhole bh) {
+        Heap<Integer> heap = new Heap<>(arity.arity);
+        for (Integer key : keys) {
+            heap.add(key);
+        }
+        for (int i = 0; i < size; i++) {
+            bh.consume(heap.remove());
+        }
+    }
+    
+    @Benchmark
+    public void priorityQueue(Blackhole bh) {
+        PriorityQueue<Integer> pq = new PriorityQueue<>();
+        for (Integer key : keys) {
+            pq.add(key);
+        }
+        for (int i = 0; i < size; i++) {
+            bh.consume(pq.poll());
+        }
+    }
+    
+    @Benchmark
+    public void intHeap(Blackhole bh) {
+        IntHeap heap = new IntHeap();
+        for (int key : intKeys) {
+            heap.add(key);
+        }
+        for (int i = 0; i < size; i++) {
+            bh.consume(heap.remove());
+        }
+    }
+    
+    @Benchmark
+    public void heapify(Arity arity, Blackhole bh) {
+        Heap<Integer> heap = new Heap<>(keys, arity.arity);
+        bh.consume(heap.remove());
+    }
+}
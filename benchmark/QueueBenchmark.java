@@ -0,0 +1,160 @@
+package benchmark;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import queue.BlockingQueue;
+import queue.BlockingQueue2;
+import queue.BlockingQueue3;
+import queue.RingBufferQueue;
+
+/**
+ * Producer/consumer throughput of the queues against LinkedBlockingQueue.
+ * 
+ * Each group runs producers and consumers on one shared queue; JMH reports
+ * ops/us per side and the sampled per-operation latency. Every queue is driven
+ * through the same timed offer/poll, so an op is one element actually moved
+ * (a failed non-blocking attempt never counts), and waits are bounded so that
+ * an iteration can always end even when one side is starved.
+ * 
+ *   java -jar target/benchmarks.jar QueueBenchmark -p capacity=1024
+ */
+@State(Scope.Group)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+    private static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final Integer ITEM = 42;
+    
+    @Param({ "BlockingQueue", "BlockingQueue2", "BlockingQueue3", "RingBufferQueue", "LinkedBlockingQueue" })
+    public String impl;
+    
+    @Param({ "16", "1024" })
+    public int capacity;
+    
+    private Adapter queue;
+    
+    // Common face of the queues under test
+    interface Adapter {
+        boolean offer(Integer e) throws InterruptedException;
+        Integer poll() throws InterruptedException;
+    }
+    
+    @Setup
+    public void setUp() {
+        queue = create(impl, capacity);
+    }
+    
+    static Adapter create(String impl, int capacity) {
+        switch (impl) {
+        case "BlockingQueue": {
+            BlockingQueue<Integer> q = new BlockingQueue<>(capacity);
+            return adapter(e -> q.offer(e, WAIT_NANOS, TimeUnit.NANOSECONDS),
+                    () -> q.poll(WAIT_NANOS, TimeUnit.NANOSECONDS));
+        }
+        case "BlockingQueue2": {
+            BlockingQueue2<Integer> q = new BlockingQueue2<>(capacity);
+            return adapter(e -> q.offer(e, WAIT_NANOS, TimeUnit.NANOSECONDS),
+                    () -> q.poll(WAIT_NANOS, TimeUnit.NANOSECONDS));
+        }
+        case "BlockingQueue3": {
+            BlockingQueue3<Integer> q = new BlockingQueue3<>(capacity);
+            return adapter(e -> q.offer(e, WAIT_NANOS, TimeUnit.NANOSECONDS),
+                    () -> q.poll(WAIT_NANOS, TimeUnit.NANOSECONDS));
+        }
+        case "RingBufferQueue": {
+            RingBufferQueue<Integer> q = new RingBufferQueue<>(capacity);
+            return adapter(e -> q.offer(e, WAIT_NANOS, TimeUnit.NANOSECONDS),
+                    () -> q.poll(WAIT_NANOS, TimeUnit.NANOSECONDS));
+        }
+        case "LinkedBlockingQueue": {
+            LinkedBlockingQueue<Integer> q = new LinkedBlockingQueue<>(capacity);
+            return adapter(e -> q.offer(e, WAIT_NANOS, TimeUnit.NANOSECONDS),
+                    () -> q.poll(WAIT_NANOS, TimeUnit.NANOSECONDS));
+        }
+        default:
+            throw new IllegalArgumentException(impl);
+        }
+    }
+    
+    interface Offer {
+        boolean offer(Integer e) throws InterruptedException;
+    }
+    
+    interface Poll {
+        Integer poll() throws InterruptedException;
+    }
+    
+    private static Adapter adapter(Offer offer, Poll poll) {
+        return new Adapter() {
+            @Override
+            public boolean offer(Integer e) throws InterruptedException {
+                return offer.offer(e);
+            }
+            
+            @Override
+            public Integer poll() throws InterruptedException {
+                return poll.poll();
+            }
+        };
+    }
+    
+    @Benchmark
+    @Group("p1c1")
+    @GroupThreads(1)
+    public boolean put1() throws InterruptedException {
+        return queue.offer(ITEM);
+    }
+    
+    @Benchmark
+    @Group("p1c1")
+    @GroupThreads(1)
+    public Integer take1() throws InterruptedException {
+        return queue.poll();
+    }
+    
+    @Benchmark
+    @Group("p4c4")
+    @GroupThreads(4)
+    public boolean put4() throws InterruptedException {
+        return queue.offer(ITEM);
+    }
+    
+    @Benchmark
+    @Group("p4c4")
+    @GroupThreads(4)
+    public Integer take4() throws InterruptedException {
+        return queue.poll();
+    }
+    
+    @Benchmark
+    @Group("p4c1")
+    @GroupThreads(4)
+    public boolean put4to1() throws InterruptedException {
+        return queue.offer(ITEM);
+    }
+    
+    @Benchmark
+    @Group("p4c1")
+    @GroupThreads(1)
+    public Integer take4to1() throws InterruptedException {
+        return queue.poll();
+    }
+}
@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import stack.SegmentedStack;
+import stack.Stack;
+
+/**
+ * Stack push/pop against java.util.ArrayDeque: each invocation pushes depth
+ * elements onto a fresh stack (so growth is included) and pops them all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackBenchmark {
+    private static final Integer ITEM = 42;
+    
+    @Param({ "100", "100000" })
+    public int depth;
+    
+    @Benchmark
+    public void stack(Blackhole bh) {
+        Stack<Integer> stack = new Stack<>();
+        for (int i = 0; i < depth; i++) {
+            stack.push(ITEM);
+        }
+        for (int i = 0; i < depth; i++) {
+            bh.consume(stack.pop());
+        }
+    }
+    
+    @Benchmark
+    public void segmented(Blackhole bh) {
+        SegmentedStack<Integer> stack = new SegmentedStack<>();
+        for (int i = 0; i < depth; i++) {
+            stack.push(ITEM);
+        }
+        for (int i = 0; i < depth; i++) {
+            bh.consume(stack.pop());
+        }
+    }
+    
+    @Benchmark
+    public void arrayDeque(Blackhole bh) {
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        for (int i = 0; i < depth; i++) {
+            stack.push(ITEM);
+        }
+        for (int i = 0; i < depth; i++) {
+            bh.consume(stack.pop());
+        }
+    }
+}
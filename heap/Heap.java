@@ -1,27 +1,61 @@
 package heap;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 
 // Min Heap
+// d-ary: every node has up to "arity" children (2 by default). With 4 or 8
+// the children of a node share a cache line and the tree is half or a third
+// as deep, so remove touches fewer lines at the cost of more compares per level.
 public class Heap<E extends Comparable<E>> {
     ArrayList<E> list = new ArrayList<>();
+    private final int arity;
     
-    public Heap() {}
+    public Heap() {
+        this(2);
+    }
+    
+    public Heap(int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("arity < 2: " + arity);
+        }
+        this.arity = arity;
+    }
 
      // O(N) - starting from construct an array (list) with arbitrary order.
      // Then, move down beginning from the deepest non-leaf node  (2N - 2 - logN)
     public Heap(E[] objects) {
+        this(objects, 2);
+    }
+    
+    public Heap(E[] objects, int arity) {
+        this(arity);
         Collections.addAll(list, objects);
-        for (int i = list.size() / 2 - 1; i >= 0; i--) { //!!! double check the range
-            moveDown(i);
-        }
+        heapify();
     }
     
     // Add a new element into the heap - O(logN)
     public void add(E newObj) {
         list.add(newObj);
-        moveUp();
+        moveUp(list.size() - 1);
+    }
+    
+    // Add all elements of c into the heap
+    // Sifting each one up costs up to K * log(N + K); appending them all and
+    // re-heapifying costs O(N + K). Pick whichever bound is smaller.
+    public void addAll(Collection<? extends E> c) {
+        int k = c.size();
+        int total = list.size() + k;
+        double depth = Math.log(total) / Math.log(arity);
+        if (k * depth > total) {
+            list.addAll(c);
+            heapify();
+        } else {
+            for (E e : c) {
+                add(e);
+            }
+        }
     }
     
     // Remove the root from the heap - O(logN)
@@ -37,11 +71,30 @@ public class Heap<E extends Comparable<E>> {
         moveDown(0);
         return removeObj;
     }
+    
+    // Returns the root without removing it, or null if empty
+    public E peek() {
+        return list.isEmpty() ? null : list.get(0);
+    }
+    
+    public int size() {
+        return list.size();
+    }
+    
+    public boolean isEmpty() {
+        return list.isEmpty();
+    }
+    
+    // Move down every non-leaf node, deepest first - O(N)
+    private void heapify() {
+        for (int i = (list.size() - 2) / arity; i >= 0; i--) { // parent of the last element
+            moveDown(i);
+        }
+    }
 
-    private void moveUp() {
-        int currentIdx = list.size() - 1;
+    private void moveUp(int currentIdx) {
         while (currentIdx > 0) {
-            int parentIdx = (currentIdx - 1) / 2;
+            int parentIdx = (currentIdx - 1) / arity;
             // Swap if current obj < parent obj
             if (list.get(currentIdx).compareTo(list.get(parentIdx)) < 0) {
                 Collections.swap(list, currentIdx, parentIdx);
@@ -53,17 +106,17 @@ public class Heap<E extends Comparable<E>> {
     }
     
     private void moveDown(int currentIdx) {
-        while (currentIdx < list.size() / 2) {
-            int leftChildIdx = 2 * currentIdx + 1;
-            int rightChildIdx = 2 * currentIdx + 2;
-            
-            if (leftChildIdx >= list.size()) { // already a heap
+        for (;;) {
+            int firstChildIdx = arity * currentIdx + 1;
+            if (firstChildIdx >= list.size()) { // already a heap
                 break;
             }
-            int minIdx = leftChildIdx;
-            if (rightChildIdx < list.size() &&
-                    list.get(rightChildIdx).compareTo(list.get(minIdx)) < 0) {
-                minIdx = rightChildIdx;
+            int lastChildIdx = Math.min(firstChildIdx + arity, list.size());
+            int minIdx = firstChildIdx;
+            for (int childIdx = firstChildIdx + 1; childIdx < lastChildIdx; childIdx++) {
+                if (list.get(childIdx).compareTo(list.get(minIdx)) < 0) {
+                    minIdx = childIdx;
+                }
             }
             
             // Swap if obj[minIdx] < current obj
@@ -0,0 +1,171 @@
+package heap;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// Indexed Min Heap
+// add returns a handle that stays valid until its element leaves the heap, and
+// a position map (handle -> heap index) finds any element in O(1), so its key
+// can be changed or it can be removed in O(logN) without a linear scan.
+// Handles are small ints and get reused once their element is removed.
+public class IndexedHeap<E extends Comparable<E>> {
+    private static final int INIT_SIZE = 16;
+    
+    private Object[] elements = new Object[INIT_SIZE]; // handle -> element
+    private int[] pos = new int[INIT_SIZE];  // handle -> index in heap, -1 if unused
+    private int[] heap = new int[INIT_SIZE]; // heap of handles
+    private int size;
+    
+    private int[] free = new int[INIT_SIZE]; // handles released by removals
+    private int freeCount;
+    private int handles; // handles handed out so far
+    
+    public IndexedHeap() {
+        Arrays.fill(pos, -1);
+    }
+    
+    // Add a new element into the heap and return its handle - O(logN)
+    public int add(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        int handle = newHandle();
+        elements[handle] = e;
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * size + 1);
+        }
+        moveUp(size++, handle);
+        return handle;
+    }
+    
+    // Remove the root from the heap - O(logN). Returns null if empty
+    public E remove() {
+        return size == 0 ? null : remove(heap[0]);
+    }
+    
+    // Remove the element of handle from the heap - O(logN)
+    public E remove(int handle) {
+        E e = get(handle);
+        int idx = pos[handle];
+        int last = heap[--size];
+        if (idx < size) { // Last element goes into the hole, which may have to move either way
+            if (idx > 0 && compare(last, heap[(idx - 1) / 2]) < 0) {
+                moveUp(idx, last);
+            } else {
+                moveDown(idx, last);
+            }
+        }
+        elements[handle] = null;
+        pos[handle] = -1;
+        free[freeCount++] = handle;
+        return e;
+    }
+    
+    // Returns the root without removing it, or null if empty
+    public E peek() {
+        return size == 0 ? null : get(heap[0]);
+    }
+    
+    // Returns the handle of the root
+    public int peekHandle() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+    
+    // Returns the element of handle
+    @SuppressWarnings("unchecked")
+    public E get(int handle) {
+        if (!contains(handle)) {
+            throw new IllegalArgumentException("no such handle: " + handle);
+        }
+        return (E) elements[handle];
+    }
+    
+    public boolean contains(int handle) {
+        return handle >= 0 && handle < handles && pos[handle] >= 0;
+    }
+    
+    // Replace the element of handle with a smaller (or equal) one - O(logN)
+    public void decreaseKey(int handle, E e) {
+        if (e.compareTo(get(handle)) > 0) {
+            throw new IllegalArgumentException("new key is bigger");
+        }
+        elements[handle] = e;
+        moveUp(pos[handle], handle);
+    }
+    
+    // Replace the element of handle with a bigger (or equal) one - O(logN)
+    public void increaseKey(int handle, E e) {
+        if (e.compareTo(get(handle)) < 0) {
+            throw new IllegalArgumentException("new key is smaller");
+        }
+        elements[handle] = e;
+        moveDown(pos[handle], handle);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    private int newHandle() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        if (handles == elements.length) {
+            int newSize = 2 * handles + 1;
+            elements = Arrays.copyOf(elements, newSize);
+            pos = Arrays.copyOf(pos, newSize);
+            Arrays.fill(pos, handles, newSize, -1);
+            free = Arrays.copyOf(free, newSize);
+        }
+        return handles++;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private int compare(int handle1, int handle2) {
+        return ((E) elements[handle1]).compareTo((E) elements[handle2]);
+    }
+    
+    // Moves the hole at idx up until handle fits, then fills it
+    private void moveUp(int idx, int handle) {
+        while (idx > 0) {
+            int parentIdx = (idx - 1) / 2;
+            int parent = heap[parentIdx];
+            if (compare(handle, parent) >= 0) {
+                break;
+            }
+            heap[idx] = parent;
+            pos[parent] = idx;
+            idx = parentIdx;
+        }
+        heap[idx] = handle;
+        pos[handle] = idx;
+    }
+    
+    // Moves the hole at idx down until handle fits, then fills it
+    private void moveDown(int idx, int handle) {
+        int half = size / 2; // First leaf
+        while (idx < half) {
+            int childIdx = 2 * idx + 1;
+            int rightChildIdx = childIdx + 1;
+            if (rightChildIdx < size && compare(heap[rightChildIdx], heap[childIdx]) < 0) {
+                childIdx = rightChildIdx;
+            }
+            int child = heap[childIdx];
+            if (compare(handle, child) <= 0) {
+                break;
+            }
+            heap[idx] = child;
+            pos[child] = idx;
+            idx = childIdx;
+        }
+        heap[idx] = handle;
+        pos[handle] = idx;
+    }
+}
@@ -0,0 +1,111 @@
+package heap;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// Min Heap of primitive ints
+// Backed by a raw int[] so nothing is boxed, and moveUp / moveDown carry the
+// moving value in a local and shift a "hole" along the path, writing it once
+// at the end instead of swapping at every level.
+public class IntHeap {
+    private static final int INIT_SIZE = 16;
+    
+    private int[] heap;
+    private int size;
+    
+    public IntHeap() {
+        this(INIT_SIZE);
+    }
+    
+    public IntHeap(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        heap = new int[Math.max(1, initialCapacity)];
+    }
+    
+    // O(N) - copy the values, then move down beginning from the deepest non-leaf node
+    public IntHeap(int[] values) {
+        heap = Arrays.copyOf(values, Math.max(1, values.length));
+        size = values.length;
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            moveDown(i, heap[i]);
+        }
+    }
+    
+    // Add a new value into the heap - O(logN)
+    public void add(int value) {
+        ensureCapacity();
+        moveUp(size++, value);
+    }
+    
+    // Remove the root (smallest value) from the heap - O(logN)
+    public int remove() {
+        int root = peek();
+        int last = heap[--size];
+        if (size > 0) {
+            moveDown(0, last); // Last value goes into the hole at the root
+        }
+        return root;
+    }
+    
+    // Returns the smallest value without removing it
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void clear() {
+        size = 0;
+    }
+    
+    // Moves the hole at idx up until value fits, then fills it
+    private void moveUp(int idx, int value) {
+        while (idx > 0) {
+            int parentIdx = (idx - 1) >>> 1;
+            int parent = heap[parentIdx];
+            if (value >= parent) {
+                break;
+            }
+            heap[idx] = parent; // Parent moves down into the hole
+            idx = parentIdx;
+        }
+        heap[idx] = value;
+    }
+    
+    // Moves the hole at idx down until value fits, then fills it
+    private void moveDown(int idx, int value) {
+        int half = size >>> 1; // First leaf
+        while (idx < half) {
+            int childIdx = 2 * idx + 1;
+            int rightChildIdx = childIdx + 1;
+            if (rightChildIdx < size && heap[rightChildIdx] < heap[childIdx]) {
+                childIdx = rightChildIdx;
+            }
+            if (value <= heap[childIdx]) {
+                break;
+            }
+            heap[idx] = heap[childIdx]; // Smaller child moves up into the hole
+            idx = childIdx;
+        }
+        heap[idx] = value;
+    }
+    
+    private void ensureCapacity() {
+        if (size == heap.length) { // The array is full
+            int newSize = size > (Integer.MAX_VALUE - 1) / 2 ? Integer.MAX_VALUE
+                    : 2 * size + 1;
+            heap = Arrays.copyOf(heap, newSize); // Double the array
+        }
+    }
+}
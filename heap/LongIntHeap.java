@@ -0,0 +1,117 @@
+package heap;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// Min Heap of (long key, int value) pairs, e.g. (timestamp, task id)
+// Keys and values sit in parallel primitive arrays, so an entry costs 12 bytes
+// and no objects; sifting shifts a hole like IntHeap.
+public class LongIntHeap {
+    private static final int INIT_SIZE = 16;
+    
+    private long[] keys;
+    private int[] values;
+    private int size;
+    
+    public LongIntHeap() {
+        this(INIT_SIZE);
+    }
+    
+    public LongIntHeap(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        keys = new long[Math.max(1, initialCapacity)];
+        values = new int[keys.length];
+    }
+    
+    // Add a new entry into the heap - O(logN)
+    public void add(long key, int value) {
+        ensureCapacity();
+        moveUp(size++, key, value);
+    }
+    
+    // Remove the root (entry with the smallest key) and return its value - O(logN)
+    // Read peekKey() first if the key is needed too.
+    public int remove() {
+        int root = peekValue();
+        --size;
+        if (size > 0) {
+            moveDown(0, keys[size], values[size]);
+        }
+        return root;
+    }
+    
+    // Returns the smallest key without removing its entry
+    public long peekKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return keys[0];
+    }
+    
+    // Returns the value of the entry with the smallest key without removing it
+    public int peekValue() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return values[0];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void clear() {
+        size = 0;
+    }
+    
+    // Moves the hole at idx up until key fits, then fills it
+    private void moveUp(int idx, long key, int value) {
+        while (idx > 0) {
+            int parentIdx = (idx - 1) >>> 1;
+            long parent = keys[parentIdx];
+            if (key >= parent) {
+                break;
+            }
+            keys[idx] = parent;
+            values[idx] = values[parentIdx];
+            idx = parentIdx;
+        }
+        keys[idx] = key;
+        values[idx] = value;
+    }
+    
+    // Moves the hole at idx down until key fits, then fills it
+    private void moveDown(int idx, long key, int value) {
+        int half = size >>> 1; // First leaf
+        while (idx < half) {
+            int childIdx = 2 * idx + 1;
+            int rightChildIdx = childIdx + 1;
+            if (rightChildIdx < size && keys[rightChildIdx] < keys[childIdx]) {
+                childIdx = rightChildIdx;
+            }
+            if (key <= keys[childIdx]) {
+                break;
+            }
+            keys[idx] = keys[childIdx];
+            values[idx] = values[childIdx];
+            idx = childIdx;
+        }
+        keys[idx] = key;
+        values[idx] = value;
+    }
+    
+    private void ensureCapacity() {
+        if (size == keys.length) { // The arrays are full
+            int newSize = size > (Integer.MAX_VALUE - 1) / 2 ? Integer.MAX_VALUE
+                    : 2 * size + 1;
+            keys = Arrays.copyOf(keys, newSize);
+            values = Arrays.copyOf(values, newSize);
+        }
+    }
+}
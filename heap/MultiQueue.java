@@ -0,0 +1,145 @@
+package heap;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Relaxed concurrent Min Heap (MultiQueue, Rihani, Sanders and Dementiev)
+// Elements are spread over several Heap shards, each behind its own lock.
+// add locks one random shard; remove peeks at the roots of two random shards
+// and takes the smaller one. Threads rarely meet on the same lock, so it
+// scales with cores, but remove only returns one of the smallest elements
+// (with high probability among the top few per shard), not always the minimum.
+// Use SkipListQueue when the exact order matters.
+public class MultiQueue<E extends Comparable<E>> {
+    private final Shard<E>[] shards;
+    private final AtomicInteger size = new AtomicInteger();
+    private final NotEmpty notEmpty = new NotEmpty();
+    
+    @SuppressWarnings("serial")
+    private static final class Shard<E extends Comparable<E>> extends ReentrantLock {
+        private final Heap<E> heap = new Heap<>(4);
+        private volatile E top; // root of heap, readable without the lock
+    }
+    
+    // Two shards per core
+    public MultiQueue() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public MultiQueue(int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard<E>();
+        }
+    }
+    
+    public void add(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        size.incrementAndGet(); // First, so size never drops below the real count
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (;;) {
+            Shard<E> shard = shards[random.nextInt(shards.length)];
+            if (shard.tryLock()) { // Busy: just try another shard
+                try {
+                    shard.heap.add(e);
+                    shard.top = shard.heap.peek();
+                } finally {
+                    shard.unlock();
+                }
+                break;
+            }
+        }
+        notEmpty.signal();
+    }
+    
+    // Removes one of the smallest elements. Returns null if empty
+    public E poll() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (size.get() > 0) {
+            Shard<E> a = shards[random.nextInt(shards.length)];
+            Shard<E> b = shards[random.nextInt(shards.length)];
+            E topA = a.top;
+            E topB = b.top;
+            if (topA == null && topB == null) { // Few elements left: look everywhere
+                E e = pollAny(random.nextInt(shards.length));
+                if (e != null) {
+                    return e;
+                }
+                continue;
+            }
+            Shard<E> shard = topB == null || (topA != null && topA.compareTo(topB) <= 0) ? a : b;
+            if (shard.tryLock()) {
+                try {
+                    E e = shard.heap.remove();
+                    if (e != null) {
+                        shard.top = shard.heap.peek();
+                        size.decrementAndGet();
+                        return e;
+                    }
+                } finally {
+                    shard.unlock();
+                }
+            }
+        }
+        return null;
+    }
+    
+    private E pollAny(int from) {
+        for (int i = 0; i < shards.length; i++) {
+            Shard<E> shard = shards[(from + i) % shards.length];
+            if (shard.top == null) {
+                continue;
+            }
+            shard.lock();
+            try {
+                E e = shard.heap.remove();
+                if (e != null) {
+                    shard.top = shard.heap.peek();
+                    size.decrementAndGet();
+                    return e;
+                }
+            } finally {
+                shard.unlock();
+            }
+        }
+        return null;
+    }
+    
+    // Removes one of the smallest elements, waiting for one if empty
+    public E take() throws InterruptedException {
+        for (;;) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            notEmpty.await(size);
+        }
+    }
+    
+    // Removes one of the smallest elements, waiting up to timeout. Returns null on timeout
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        for (;;) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            if (nanos <= 0) {
+                return null;
+            }
+            nanos = notEmpty.await(size, nanos);
+        }
+    }
+    
+    public int size() {
+        return size.get();
+    }
+}
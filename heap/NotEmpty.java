@@ -0,0 +1,50 @@
+package heap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Parking lot for takers of the lock-free / sharded priority queues.
+// The queues themselves take no lock on the fast path; only a taker that
+// finds the queue empty comes here, and an adder only takes the lock when
+// someone is actually waiting.
+class NotEmpty {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private volatile int waiters;
+    
+    // Waits until size > 0 or the timeout elapses; returns the time left
+    long await(AtomicInteger size, long nanos) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            waiters++; // Published before size is read, so an adder can't miss us
+            try {
+                while (size.get() == 0 && nanos > 0) {
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+                return nanos;
+            } finally {
+                waiters--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Waits until size > 0
+    void await(AtomicInteger size) throws InterruptedException {
+        await(size, Long.MAX_VALUE);
+    }
+    
+    // Called after size was incremented
+    void signal() {
+        if (waiters > 0) {
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package heap;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Strict lock-free concurrent Min Heap over a skip list
+// Built on ConcurrentSkipListSet, whose add and pollFirst are lock-free (CAS
+// on the list links). Unlike MultiQueue, poll always returns the current
+// minimum, and equal elements come out in insertion (FIFO) order.
+public class SkipListQueue<E extends Comparable<E>> {
+    private final ConcurrentSkipListSet<Entry<E>> set = new ConcurrentSkipListSet<>();
+    private final AtomicLong sequence = new AtomicLong(); // Tie-breaker, so equal elements are distinct
+    private final AtomicInteger size = new AtomicInteger(); // set.size() is O(N)
+    private final NotEmpty notEmpty = new NotEmpty();
+    
+    private static final class Entry<E extends Comparable<E>> implements Comparable<Entry<E>> {
+        private final E element;
+        private final long seq;
+        
+        Entry(E element, long seq) {
+            this.element = element;
+            this.seq = seq;
+        }
+        
+        public int compareTo(Entry<E> other) {
+            int c = element.compareTo(other.element);
+            return c != 0 ? c : Long.compare(seq, other.seq);
+        }
+    }
+    
+    public void add(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        size.incrementAndGet(); // First, so size never drops below the real count
+        set.add(new Entry<E>(e, sequence.getAndIncrement()));
+        notEmpty.signal();
+    }
+    
+    // Removes the smallest element. Returns null if empty
+    public E poll() {
+        Entry<E> entry = set.pollFirst();
+        if (entry == null) {
+            return null;
+        }
+        size.decrementAndGet();
+        return entry.element;
+    }
+    
+    // Removes the smallest element, waiting for one if empty
+    public E take() throws InterruptedException {
+        for (;;) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            notEmpty.await(size);
+        }
+    }
+    
+    // Removes the smallest element, waiting up to timeout. Returns null on timeout
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        for (;;) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            if (nanos <= 0) {
+                return null;
+            }
+            nanos = notEmpty.await(size, nanos);
+        }
+    }
+    
+    public int size() {
+        return size.get();
+    }
+}
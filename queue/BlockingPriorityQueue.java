@@ -0,0 +1,209 @@
+package queue;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import heap.Heap;
+
+/**
+ * Thread-safe bounded Blocking Priority Queue over heap.Heap
+ * 
+ * Same one lock, two conditions protocol as BlockingQueue3: puts wait on
+ * notFull and wake one taker, takes wait on notEmpty and wake one putter.
+ * take returns the smallest element; equal elements come out in put (FIFO)
+ * order, via a sequence number stored next to each one.
+ *
+ * @param <E>
+ */
+
+public class BlockingPriorityQueue<E extends Comparable<E>> {
+    private static final class Entry<E extends Comparable<E>> implements Comparable<Entry<E>> {
+        private final E element;
+        private final long seq;
+        
+        Entry(E element, long seq) {
+            this.element = element;
+            this.seq = seq;
+        }
+        
+        public int compareTo(Entry<E> other) {
+            int c = element.compareTo(other.element);
+            return c != 0 ? c : Long.compare(seq, other.seq);
+        }
+    }
+    
+    private final Heap<Entry<E>> heap = new Heap<>(4); // 4-ary: half as deep, siblings share a cache line
+    private long sequence; // Tie-breaker, guarded by lock
+    
+    private final Lock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();  // For put
+    private final Condition notEmpty = lock.newCondition(); // For take
+    
+    private final int capacity; // Capacity of the blocking queue
+    
+    private final Meter meter;
+    
+    public BlockingPriorityQueue() {
+        this(Integer.MAX_VALUE);
+    }
+    
+    public BlockingPriorityQueue(int capacity) {
+        this(capacity, QueueMetrics.DISABLED);
+    }
+    
+    public BlockingPriorityQueue(int capacity, QueueMetrics metrics) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        this.meter = new Meter(metrics);
+    }
+    
+    public void put(E e) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        meter.lockInterruptibly(lock);
+        try {
+            long waitStart = 0;
+            while (heap.size() == capacity) {
+                waitStart = meter.startWait(waitStart);
+                notFull.await();
+            }
+            meter.putWaited(waitStart);
+            enqueue(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Removes the smallest element, waiting for one if necessary
+    public E take() throws InterruptedException {
+        meter.lockInterruptibly(lock);
+        try {
+            long waitStart = 0;
+            while (heap.isEmpty()) {
+                waitStart = meter.startWait(waitStart);
+                notEmpty.await();
+            }
+            meter.takeWaited(waitStart);
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Inserts e, waiting up to timeout for space. Returns false on timeout
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        meter.lockInterruptibly(lock);
+        try {
+            long waitStart = 0;
+            while (heap.size() == capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                waitStart = meter.startWait(waitStart);
+                nanos = notFull.awaitNanos(nanos); // time left
+            }
+            meter.putWaited(waitStart);
+            enqueue(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Removes the smallest element, waiting up to timeout for one. Returns null on timeout
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        meter.lockInterruptibly(lock);
+        try {
+            long waitStart = 0;
+            while (heap.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                waitStart = meter.startWait(waitStart);
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            meter.takeWaited(waitStart);
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Removes all available elements, smallest first, and adds them to c
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+    
+    // Removes at most maxElements available elements, smallest first, and
+    // adds them to c, under one lock hold with one signalAll
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        meter.lock(lock);
+        try {
+            int n = 0;
+            try {
+                while (n < maxElements && !heap.isEmpty()) {
+                    c.add(heap.peek().element); // if add throws, the element stays queued
+                    heap.remove();
+                    n++;
+                }
+            } finally {
+                if (n > 0) {
+                    meter.dequeued(n, heap.size());
+                    meter.signalAll(notFull);
+                }
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Returns the smallest element without removing it, or null if empty
+    public E peek() {
+        lock.lock();
+        try {
+            Entry<E> entry = heap.peek();
+            return entry == null ? null : entry.element;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Number of elements in the queue
+    public int size() {
+        lock.lock();
+        try {
+            return heap.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Both called with lock held
+    private void enqueue(E e) {
+        heap.add(new Entry<E>(e, sequence++));
+        meter.enqueued(1, heap.size());
+        meter.signal(notEmpty);
+    }
+    
+    private E dequeue() {
+        E e = heap.remove().element;
+        meter.dequeued(1, heap.size());
+        meter.signal(notFull);
+        return e;
+    }
+}
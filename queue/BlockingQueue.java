@@ -1,10 +1,17 @@
 package queue;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * JDK version
@@ -36,15 +43,22 @@ public class BlockingQueue<E> {
        
     private final int capacity; // Capacity of the blocking queue
     
+    private final Meter meter;
+    
     public BlockingQueue() {
-        capacity = Integer.MAX_VALUE;
+        this(Integer.MAX_VALUE); // also sets up the dummy node
     }
     
     public BlockingQueue(int capacity) {
+        this(capacity, QueueMetrics.DISABLED);
+    }
+    
+    public BlockingQueue(int capacity, QueueMetrics metrics) {
         if (capacity <= 0) {
             throw new IllegalArgumentException();
         }
         this.capacity = capacity;
+        this.meter = new Meter(metrics);
         head = tail = new Node<E>(null); // dummy node
     }
     
@@ -64,15 +78,19 @@ public class BlockingQueue<E> {
         }
         int count = 0; // Current count
         Node<E> node = new Node<E>(e);
-        putLock.lock();
+        meter.lockInterruptibly(putLock);
         try {
+            long waitStart = 0;
             while (this.count.get() == capacity) {
+                waitStart = meter.startWait(waitStart);
                 notFull.await();
             }
+            meter.putWaited(waitStart);
             tail = tail.next = node; // enqueue
             count = this.count.incrementAndGet(); // ++i
+            meter.enqueued(1, count);
             if (count < capacity) {
-                notFull.signal();
+                meter.signal(notFull);
             }
         } finally {
             putLock.unlock();
@@ -85,15 +103,19 @@ public class BlockingQueue<E> {
     public E take() throws InterruptedException {
         E e = null;
         int count = 0; // Current count
-        takeLock.lock();
+        meter.lockInterruptibly(takeLock);
         try {
+            long waitStart = 0;
             while (this.count.get() == 0) {
+                waitStart = meter.startWait(waitStart);
                 notEmpty.await();
             }
+            meter.takeWaited(waitStart);
             e = dequeue();
             count = this.count.decrementAndGet(); // --i
+            meter.dequeued(1, count);
             if (count > 0) {
-                notEmpty.signal();
+                meter.signal(notEmpty);
             }
         } finally {
             takeLock.unlock();
@@ -104,6 +126,178 @@ public class BlockingQueue<E> {
         return e;
     }
     
+    /**
+     * Inserts e, waiting up to timeout for space to become available
+     * 
+     * @param e
+     * @param timeout
+     * @param unit
+     * @return false if the timeout elapsed before space was available
+     * @throws InterruptedException
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        int count = 0;
+        Node<E> node = new Node<E>(e);
+        meter.lockInterruptibly(putLock);
+        try {
+            long waitStart = 0;
+            while (this.count.get() == capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                waitStart = meter.startWait(waitStart);
+                nanos = notFull.awaitNanos(nanos); // time left
+            }
+            meter.putWaited(waitStart);
+            tail = tail.next = node;
+            count = this.count.incrementAndGet();
+            meter.enqueued(1, count);
+            if (count < capacity) {
+                meter.signal(notFull);
+            }
+        } finally {
+            putLock.unlock();
+        }
+        if (count == 1) {
+            signalNotEmpty();
+        }
+        return true;
+    }
+    
+    // Removes the head element, waiting up to timeout for one. Returns null on timeout
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        E e = null;
+        int count = 0;
+        meter.lockInterruptibly(takeLock);
+        try {
+            long waitStart = 0;
+            while (this.count.get() == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                waitStart = meter.startWait(waitStart);
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            meter.takeWaited(waitStart);
+            e = dequeue();
+            count = this.count.decrementAndGet();
+            meter.dequeued(1, count);
+            if (count > 0) {
+                meter.signal(notEmpty);
+            }
+        } finally {
+            takeLock.unlock();
+        }
+        if (count == capacity - 1) {
+            signalNotFull();
+        }
+        return e;
+    }
+    
+    /**
+     * Inserts all elements of c in order, waiting for space as needed.
+     * The nodes are built before taking putLock, then each batch that fits is
+     * linked under one lock hold and costs at most one signal to takers.
+     * 
+     * If interrupted, the elements before the interrupted wait have already
+     * been inserted.
+     * 
+     * @param c
+     * @throws InterruptedException
+     */
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        Object[] items = c.toArray();
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Node<E>[] nodes = new Node[items.length];
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == null) {
+                throw new NullPointerException();
+            }
+            @SuppressWarnings("unchecked")
+            E e = (E) items[i];
+            nodes[i] = new Node<E>(e);
+        }
+        int i = 0;
+        meter.lockInterruptibly(putLock);
+        try {
+            while (i < nodes.length) {
+                long waitStart = 0;
+                while (count.get() == capacity) {
+                    waitStart = meter.startWait(waitStart);
+                    notFull.await();
+                }
+                meter.putWaited(waitStart);
+                // Takers only lower count meanwhile, so this much room stays free
+                int n = Math.min(capacity - count.get(), nodes.length - i);
+                for (int end = i + n; i < end; i++) {
+                    tail = tail.next = nodes[i];
+                }
+                int previous = count.getAndAdd(n);
+                meter.enqueued(n, previous + n);
+                if (previous == 0) { // was empty; putLock -> takeLock is the fullyLock order
+                    signalNotEmpty();
+                }
+            }
+            if (count.get() < capacity) {
+                meter.signal(notFull);
+            }
+        } finally {
+            putLock.unlock();
+        }
+    }
+    
+    // Removes all available elements and adds them to c
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Removes at most maxElements available elements and adds them to c,
+     * under one takeLock hold and with at most one signal to putters.
+     * 
+     * @param c
+     * @param maxElements
+     * @return the number of elements transferred
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (maxElements <= 0) {
+            return 0;
+        }
+        boolean signalNotFull = false;
+        meter.lock(takeLock);
+        try {
+            int n = Math.min(maxElements, count.get());
+            int i = 0;
+            try {
+                while (i < n) {
+                    c.add(head.next.item); // if add throws, the element stays queued
+                    dequeue();
+                    i++;
+                }
+            } finally {
+                if (i > 0) {
+                    int previous = count.getAndAdd(-i);
+                    meter.dequeued(i, previous - i);
+                    signalNotFull = previous == capacity; // previously full
+                }
+            }
+            return n;
+        } finally {
+            takeLock.unlock();
+            if (signalNotFull) {
+                signalNotFull();
+            }
+        }
+    }
+    
     // Number of elements in the queue
     public int size() {
         return count.get();
@@ -116,17 +310,20 @@ public class BlockingQueue<E> {
 //        if (head.next == null) {
 //            tail = head;
 //        }
-        head = head.next;
-        E e = head.item;
-        head.item = null;
+        Node<E> h = head;
+        Node<E> first = h.next;
+        h.next = h; // self-link so iterators holding h know it was dequeued
+        head = first;
+        E e = first.item;
+        first.item = null;
         return e;
     }
     
     // Signals a waiting take. Called only from put
     private void signalNotEmpty() {
-        takeLock.lock();
+        meter.lock(takeLock);
         try {
-            notEmpty.signal();
+            meter.signal(notEmpty);
         } finally {
             takeLock.unlock();
         }
@@ -134,62 +331,130 @@ public class BlockingQueue<E> {
     
     // Signals a waiting put. Called only from take
     private void signalNotFull() {
-        putLock.lock();
+        meter.lock(putLock);
         try {
-            notFull.signal();
+            meter.signal(notFull);
         } finally {
             putLock.unlock();
         }
     }
     
+    
     /*
      * The returned iterator is a "weakly consistent" iterator that will never
      * throw ConcurrentModificationException, and guarantees to traverse
      * elements as they existed upon construction of the iterator, and may (but
      * is not guaranteed to) reflect any modifications subsequent to
      * construction.
+     * 
+     * Elements are copied out BATCH at a time, so both locks are held once per
+     * batch rather than once per element.
      */
     public Iterator<E> iterator() {
         return new Itr();
     }
     
-    private class Itr implements Iterator<E> {
-        private Node<E> current;
-        private Node<E> lastRet;
-        private E currentElement;
+    /*
+     * Weakly consistent like iterator(). Splits hand off growing arrays of
+     * elements, and forEachRemaining copies a batch per lock hold.
+     */
+    public Spliterator<E> spliterator() {
+        return new Spliter();
+    }
+    
+    public Stream<E> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+    
+    private static final int BATCH = 64; // Elements copied per fullyLock hold
+    
+    // Walks the list a batch at a time, holding both locks only while copying
+    private class Cursor {
+        private Node<E> last; // last node copied, null before the first batch
+        private boolean exhausted;
         
-        Itr() {
+        /**
+         * Copies up to items.length - from live elements into items, starting at
+         * from, and their nodes into nodes unless it is null.
+         * 
+         * @return the number of elements copied; 0 once the end has been reached
+         */
+        int fill(Object[] items, int from, Node<E>[] nodes) {
+            if (exhausted) {
+                return 0;
+            }
+            int n = 0;
             fullyLock();
             try {
-                current = head.next;
-                if (current != null) {
-                    currentElement = current.item;
+                Node<E> p = last == null ? head.next : nextNode(last);
+                for (; p != null && from + n < items.length; p = nextNode(p)) {
+                    items[from + n] = p.item;
+                    if (nodes != null) {
+                        nodes[from + n] = p;
+                    }
+                    last = p;
+                    n++;
                 }
             } finally {
                 fullyUnlock();
             }
+            exhausted = n == 0;
+            return n;
+        }
+    }
+    
+    /*
+     * Returns the next live successor of current, or null if no such.
+     * Unlike other traversal methods, iterators need to handle both: -
+     * dequeued nodes (current.next == current) - (possibly multiple)
+     * interior removed nodes (current.item == null)
+     */
+    private Node<E> nextNode(Node<E> current) {
+        for (;;) {
+            Node<E> next = current.next;
+            if (next == current) {
+                return head.next;
+            }
+            if (next == null || next.item != null) {
+                return next;
+            }
+            current = next;
+        }
+    }
+    
+    private class Itr implements Iterator<E> {
+        private final Cursor cursor = new Cursor();
+        private final Object[] items = new Object[BATCH];
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private final Node<E>[] nodes = new Node[BATCH];
+        private int index;
+        private int length;
+        private Node<E> lastRet;
+        
+        Itr() {
+            length = cursor.fill(items, 0, nodes); // the first batch is as of construction
         }
         
         @Override
         public boolean hasNext() {
-            return currentElement != null;
+            if (index == length) {
+                index = 0;
+                length = cursor.fill(items, 0, nodes);
+            }
+            return index < length;
         }
 
         @Override
         public E next() {
-            fullyLock();
-            try {
-                if (current == null) {
-                    throw new NoSuchElementException();
-                }
-                E e = currentElement;
-                lastRet = current;
-                current = nextNode(current);
-                currentElement = (current == null ? null : current.item);
-                return e;
-            } finally {
-                fullyUnlock();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
+            @SuppressWarnings("unchecked")
+            E e = (E) items[index];
+            lastRet = nodes[index];
+            items[index] = null;
+            nodes[index++] = null;
+            return e;
         }
 
         @Override
@@ -209,8 +474,10 @@ public class BlockingQueue<E> {
                         if (tail == p) {
                             tail = trail;
                         }
-                        if (count.getAndDecrement() == capacity) {
-                            notFull.signal();
+                        int previous = count.getAndDecrement();
+                        meter.dequeued(1, previous - 1); // like take, so depth doesn't drift
+                        if (previous == capacity) {
+                            meter.signal(notFull);
                         }
                         break;
                     }
@@ -219,24 +486,72 @@ public class BlockingQueue<E> {
                 fullyUnlock();
             }
         }
+    }
+    
+    private class Spliter implements Spliterator<E> {
+        private static final int MAX_SPLIT = 1 << 25;
+        private final Cursor cursor = new Cursor();
+        private Object[] items; // tryAdvance buffer
+        private int index;
+        private int length;
+        private int split = BATCH; // size of the last split, grows each time
+        private long estimate = size();
         
-        /*
-         * Returns the next live successor of current, or null if no such.
-         * Unlike other traversal methods, iterators need to handle both: -
-         * dequeued nodes (current.next == current) - (possibly multiple)
-         * interior removed nodes (current.item == null)
-         */
-        private Node<E> nextNode(Node<E> current) {
-            for (;;) {
-                Node<E> next = current.next;
-                if (next == current) {
-                    return head.next;
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            if (index == length) {
+                if (items == null) {
+                    items = new Object[BATCH];
                 }
-                if (next == null || next.item != null) {
-                    return next;
+                index = 0;
+                length = cursor.fill(items, 0, null);
+                if (length == 0) {
+                    estimate = 0;
+                    return false;
                 }
-                current = next;
             }
+            @SuppressWarnings("unchecked")
+            E e = (E) items[index];
+            items[index++] = null;
+            action.accept(e); // outside the locks
+            return true;
+        }
+        
+        // Hands off the next (buffered first) up to split elements as an array
+        @Override
+        public Spliterator<E> trySplit() {
+            int n = split = Math.min(split << 1, MAX_SPLIT);
+            Object[] a = new Object[n];
+            int i = 0;
+            while (index < length && i < n) {
+                a[i++] = items[index];
+                items[index++] = null;
+            }
+            while (i < n) {
+                int copied = cursor.fill(a, i, null);
+                if (copied == 0) {
+                    break;
+                }
+                i += copied;
+            }
+            if (i == 0) {
+                return null;
+            }
+            estimate = Math.max(0, estimate - i);
+            return Spliterators.spliterator(a, 0, i, characteristics());
+        }
+        
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+        
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.CONCURRENT;
         }
     }
     
@@ -248,7 +563,7 @@ public class BlockingQueue<E> {
     
     // Unlock to allow both puts and takes
     private void fullyUnlock() {
-        putLock.lock();
-        takeLock.lock();
+        takeLock.unlock();
+        putLock.unlock();
     }
 }
\ No newline at end of file
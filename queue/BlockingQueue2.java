@@ -1,57 +1,231 @@
 package queue;
 
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe Blocking Queue with a single wait set, like synchronized /
+ * wait / notifyAll: producers and consumers wait on one condition and a
+ * state change wakes them all.
+ * 
+ * It uses a ReentrantLock rather than a monitor because a virtual thread
+ * blocked in Object.wait() (or inside synchronized) pins its carrier thread,
+ * whereas one parked on a j.u.c lock or condition unmounts cleanly.
+ */
 
 public class BlockingQueue2<E> {
     Queue<E> queue = new LinkedList<E>();
     private final int capacity; // Capacity of the blocking queue
     
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition(); // the one wait set
+    
+    private final Meter meter;
+    
     public BlockingQueue2() {
-        capacity = Integer.MAX_VALUE;
+        this(Integer.MAX_VALUE);
     }
     
     public BlockingQueue2(int capacity) {
+        this(capacity, QueueMetrics.DISABLED);
+    }
+    
+    public BlockingQueue2(int capacity, QueueMetrics metrics) {
         if (capacity < 0) {
             throw new IllegalArgumentException();
         }
         this.capacity = capacity;
+        this.meter = new Meter(metrics);
     }
     
-    public synchronized void put(E e) {
+    public void put(E e) throws InterruptedException {
         if (e == null) {
             throw new NullPointerException();
         }
+        meter.lockInterruptibly(lock);
         try {
+            long waitStart = 0;
             while (queue.size() == capacity) {
-                wait();
+                waitStart = meter.startWait(waitStart);
+                changed.await();
             }
+            meter.putWaited(waitStart);
             queue.offer(e); 
+            meter.enqueued(1, queue.size());
             if (queue.size() == 1) { // Notify only if the queue previously was empty
-                notifyAll();
+                notifyAllWaiters();
             }                      
-        } catch (InterruptedException ex) {
-            
+        } finally {
+            lock.unlock();
         }
     }
     
-    public synchronized E take() {
-        E e = null;
+    public E take() throws InterruptedException {
+        meter.lockInterruptibly(lock);
         try {
+            long waitStart = 0;
             while (queue.isEmpty()) {
-                wait();
+                waitStart = meter.startWait(waitStart);
+                changed.await();
             }
-            e = queue.poll();
+            meter.takeWaited(waitStart);
+            E e = queue.poll();
+            meter.dequeued(1, queue.size());
             if (queue.size() == capacity - 1) { // Notify only if the queue was full
-                notifyAll();
+                notifyAllWaiters();
+            }
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Inserts e, waiting up to timeout for space. Returns false on timeout
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        meter.lockInterruptibly(lock);
+        try {
+            long waitStart = 0;
+            while (queue.size() == capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                waitStart = meter.startWait(waitStart);
+                nanos = changed.awaitNanos(nanos); // time left
+            }
+            meter.putWaited(waitStart);
+            queue.offer(e);
+            meter.enqueued(1, queue.size());
+            if (queue.size() == 1) {
+                notifyAllWaiters();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Removes the head element, waiting up to timeout for one. Returns null on timeout
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        meter.lockInterruptibly(lock);
+        try {
+            long waitStart = 0;
+            while (queue.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                waitStart = meter.startWait(waitStart);
+                nanos = changed.awaitNanos(nanos);
+            }
+            meter.takeWaited(waitStart);
+            E e = queue.poll();
+            meter.dequeued(1, queue.size());
+            if (queue.size() == capacity - 1) {
+                notifyAllWaiters();
             }
-        } catch (InterruptedException ex) {
-            
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Inserts all elements of c in order, waiting for space as needed.
+    // Each batch that fits costs one signalAll, and only if the queue was empty.
+    // If interrupted, the elements before the interrupted wait are already in.
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        for (E e : c) {
+            if (e == null) {
+                throw new NullPointerException();
+            }
+        }
+        meter.lockInterruptibly(lock);
+        try {
+            int added = 0;
+            boolean wasEmpty = queue.isEmpty();
+            for (E e : c) {
+                if (queue.size() == capacity) {
+                    if (added > 0) {
+                        meter.enqueued(added, queue.size());
+                        if (wasEmpty) { // wake takers before blocking on them
+                            notifyAllWaiters();
+                        }
+                    }
+                    long waitStart = meter.startWait(0);
+                    while (queue.size() == capacity) {
+                        changed.await();
+                    }
+                    meter.putWaited(waitStart);
+                    added = 0;
+                    wasEmpty = queue.isEmpty();
+                }
+                queue.offer(e);
+                added++;
+            }
+            if (added > 0) {
+                meter.enqueued(added, queue.size());
+                if (wasEmpty) {
+                    notifyAllWaiters();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Removes all available elements and adds them to c
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+    
+    // Removes at most maxElements available elements and adds them to c,
+    // with one signalAll if the queue was full
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        meter.lock(lock);
+        try {
+            boolean wasFull = queue.size() == capacity;
+            int n = 0;
+            try {
+                while (n < maxElements && !queue.isEmpty()) {
+                    c.add(queue.peek()); // if add throws, the element stays queued
+                    queue.poll();
+                    n++;
+                }
+            } finally {
+                if (n > 0) {
+                    meter.dequeued(n, queue.size());
+                    if (wasFull) {
+                        notifyAllWaiters();
+                    }
+                }
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
         }
-        return e;
     }
     
-    public synchronized int size() {
-        return queue.size();
+    // Called with the lock held
+    private void notifyAllWaiters() {
+        meter.signalAll(changed);
     }
 }
@@ -1,7 +1,9 @@
 package queue;
 
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -22,50 +24,178 @@ public class BlockingQueue3<E> {
     
     private final int capacity; // Capacity of the blocking queue
     
+    private final Meter meter;
+    
     public BlockingQueue3() {
-        capacity = Integer.MAX_VALUE;
+        this(Integer.MAX_VALUE);
     }
     
     public BlockingQueue3(int capacity) {
+        this(capacity, QueueMetrics.DISABLED);
+    }
+    
+    public BlockingQueue3(int capacity, QueueMetrics metrics) {
         if (capacity <= 0) {
             throw new IllegalArgumentException();
         }
         this.capacity = capacity;
+        this.meter = new Meter(metrics);
     }
     
-    public void put(E e) {
+    public void put(E e) throws InterruptedException {
         if (e == null) {
             throw new NullPointerException();
         }
-        lock.lock();
+        meter.lockInterruptibly(lock);
         try {
+            long waitStart = 0;
             while (queue.size() == capacity) {
+                waitStart = meter.startWait(waitStart);
                 notFull.await();
             }
+            meter.putWaited(waitStart);
             queue.offer(e);
-            notEmpty.signal();
-        } catch (InterruptedException ex) {
-            
+            meter.enqueued(1, queue.size());
+            meter.signal(notEmpty);
         } finally {
             lock.unlock();
         }       
     }
     
-    public E take() {
-        E e = null;
-        lock.lock();
+    public E take() throws InterruptedException {
+        meter.lockInterruptibly(lock);
         try {
+            long waitStart = 0;
             while (queue.isEmpty()) {
+                waitStart = meter.startWait(waitStart);
                 notEmpty.await();
             }
-            e = queue.poll();
-            notFull.signal();
-        } catch (InterruptedException ex) {
-            
+            meter.takeWaited(waitStart);
+            E e = queue.poll();
+            meter.dequeued(1, queue.size());
+            meter.signal(notFull);
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Inserts e, waiting up to timeout for space. Returns false on timeout
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        meter.lockInterruptibly(lock);
+        try {
+            long waitStart = 0;
+            while (queue.size() == capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                waitStart = meter.startWait(waitStart);
+                nanos = notFull.awaitNanos(nanos); // time left
+            }
+            meter.putWaited(waitStart);
+            queue.offer(e);
+            meter.enqueued(1, queue.size());
+            meter.signal(notEmpty);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Removes the head element, waiting up to timeout for one. Returns null on timeout
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        meter.lockInterruptibly(lock);
+        try {
+            long waitStart = 0;
+            while (queue.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                waitStart = meter.startWait(waitStart);
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            meter.takeWaited(waitStart);
+            E e = queue.poll();
+            meter.dequeued(1, queue.size());
+            meter.signal(notFull);
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Inserts all elements of c in order, waiting for space as needed.
+    // Each batch that fits is added under one lock hold with one signalAll.
+    // If interrupted, the elements before the interrupted wait are already in.
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        for (E e : c) {
+            if (e == null) {
+                throw new NullPointerException();
+            }
+        }
+        meter.lockInterruptibly(lock);
+        try {
+            int added = 0;
+            for (E e : c) {
+                if (queue.size() == capacity) {
+                    if (added > 0) { // wake takers before blocking on them
+                        meter.enqueued(added, queue.size());
+                        meter.signalAll(notEmpty);
+                        added = 0;
+                    }
+                    long waitStart = meter.startWait(0);
+                    while (queue.size() == capacity) {
+                        notFull.await();
+                    }
+                    meter.putWaited(waitStart);
+                }
+                queue.offer(e);
+                added++;
+            }
+            if (added > 0) {
+                meter.enqueued(added, queue.size());
+                meter.signalAll(notEmpty);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Removes all available elements and adds them to c
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+    
+    // Removes at most maxElements available elements and adds them to c,
+    // under one lock hold with one signalAll
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        meter.lock(lock);
+        try {
+            int n = 0;
+            try {
+                while (n < maxElements && !queue.isEmpty()) {
+                    c.add(queue.peek()); // if add throws, the element stays queued
+                    queue.poll();
+                    n++;
+                }
+            } finally {
+                if (n > 0) {
+                    meter.dequeued(n, queue.size());
+                    meter.signalAll(notFull);
+                }
+            }
+            return n;
         } finally {
             lock.unlock();
         }
-        return e;
     }
     
     // Number of elements in the queue
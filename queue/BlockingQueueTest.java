@@ -3,6 +3,7 @@ package queue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class BlockingQueueTest {
     private static final int NUM = 2;
@@ -11,11 +12,13 @@ public class BlockingQueueTest {
     private static BlockingQueue<Integer> buffer = new BlockingQueue<>(NUM);
     //private static BlockingQueue2<Integer> buffer = new BlockingQueue2<>(NUM);
 
-    public static void main(String[] args) {
-        ExecutorService executor = Executors.newFixedThreadPool(NUM); // Create 2 threads
+    public static void main(String[] args) throws InterruptedException {
+        // One thread per task; virtual threads when the JVM has them
+        ExecutorService executor = Executors.newCachedThreadPool(Pipeline.defaultThreadFactory());
         executor.execute(new ProducerTask());
         executor.execute(new ConsumerTask());
         executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS); // the threads are daemons
     }
 
     // Adding an int to the buffer
@@ -0,0 +1,555 @@
+package queue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Thread-safe bounded Blocking Queue that survives a process restart
+ *
+ * Elements are appended to a log of memory-mapped segment files in a
+ * directory, and the consumer's position is kept in a small mapped offset
+ * file next to them. put returns only once its record is on disk, but the
+ * fsyncs are group-committed: one putter forces the segment for every record
+ * appended so far while the others wait for it, so N concurrent puts cost
+ * about one force() rather than N. Segments left behind by a roll, and the
+ * directory entry of a new one, are forced by the same group commit.
+ *
+ * Only one queue at a time may have the directory open: it is locked with a
+ * FileLock until close.
+ *
+ * Reopening the directory recovers the pending elements. Delivery is
+ * at-least-once: the consumer offset is forced with each group commit, when
+ * the reader leaves a segment and on close, so elements taken just before a
+ * crash may be taken again.
+ *
+ * Record layout: int (length + 1, 0 = nothing written), int CRC32, payload.
+ * Records never span segments; -1 in place of the length marks the end of one.
+ *
+ * @param <E>
+ */
+
+public class DurableQueue<E> implements Closeable {
+    // Turns elements into record payloads and back
+    public interface Codec<E> {
+        byte[] encode(E e);
+    
+        E decode(byte[] bytes);
+    }
+    
+    public static Codec<String> utf8() {
+        return new Codec<String>() {
+            public byte[] encode(String s) {
+                return s.getBytes(StandardCharsets.UTF_8);
+            }
+    
+            public String decode(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+    
+    private static final int HEADER_SIZE = 8;
+    private static final int END = -1;
+    private static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String OFFSET_FILE = "consumer.offset";
+    private static final String LOCK_FILE = "queue.lock";
+    
+    private final Path dir;
+    private final Codec<E> codec;
+    private final int segmentSize;
+    private final int capacity;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();  // For put
+    private final Condition notEmpty = lock.newCondition(); // For take
+    private final Condition synced = lock.newCondition();   // For puts waiting on another's force()
+    
+    // Positions are byte offsets into the whole log; segment i starts at i * segmentSize
+    private MappedByteBuffer writeSegment;
+    private long writeIndex;
+    private long writePosition;
+    private MappedByteBuffer readSegment;
+    private long readIndex;
+    private long readPosition;
+    private final MappedByteBuffer offset; // readPosition, as of the last take
+    private final FileLock dirLock;
+    
+    private long syncedPosition; // Everything before it is on disk
+    private boolean syncing;     // A put is forcing outside the lock
+    private List<MappedByteBuffer> unforced = new ArrayList<>(); // Rolled away from, not yet forced
+    private boolean dirDirty;    // A segment was created since the directory was last forced
+    private int count;
+    private boolean closed;
+    
+    private DurableQueue(Path dir, Codec<E> codec, int capacity, int segmentSize) throws IOException {
+        this.dir = dir;
+        this.codec = codec;
+        this.capacity = capacity;
+        this.segmentSize = segmentSize;
+        dirLock = lockDir(dir);
+        try {
+            try (FileChannel channel = FileChannel.open(dir.resolve(OFFSET_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                offset = channel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+            }
+            recover();
+        } catch (IOException | RuntimeException ex) {
+            dirLock.channel().close(); // releases the lock
+            throw ex;
+        }
+    }
+    
+    private static FileLock lockDir(Path dir) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock = null;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException ex) { // held by this JVM
+        } finally {
+            if (lock == null) {
+                channel.close();
+            }
+        }
+        if (lock == null) {
+            throw new IOException("queue directory in use: " + dir);
+        }
+        return lock;
+    }
+    
+    public static <E> DurableQueue<E> open(Path dir, Codec<E> codec) throws IOException {
+        return open(dir, codec, Integer.MAX_VALUE, DEFAULT_SEGMENT_SIZE);
+    }
+    
+    /**
+     * Opens the queue stored in dir, creating it if needed, and recovers
+     * the elements that were put but not yet taken.
+     *
+     * @param dir
+     * @param codec
+     * @param capacity maximum number of pending elements before put blocks
+     * @param segmentSize bytes per segment file; bounds the largest record
+     * @return the queue
+     * @throws IOException
+     */
+    public static <E> DurableQueue<E> open(Path dir, Codec<E> codec, int capacity, int segmentSize)
+            throws IOException {
+        if (dir == null || codec == null) {
+            throw new NullPointerException();
+        }
+        if (capacity <= 0 || segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException();
+        }
+        Files.createDirectories(dir);
+        return new DurableQueue<E>(dir, codec, capacity, segmentSize);
+    }
+    
+    /**
+     * Inserts e, waiting for space if necessary. Returns once e is on disk.
+     * 
+     * An UncheckedIOException means the force failed after e was appended:
+     * e may or may not survive a crash, and may already have been taken, so
+     * retrying can enqueue it twice.
+     *
+     * @param e
+     * @throws InterruptedException
+     */
+    public void put(E e) throws InterruptedException {
+        byte[] bytes = encode(e);
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity && !closed) { // > after reopening with a smaller capacity
+                notFull.await();
+            }
+            append(bytes);
+            awaitSynced(writePosition);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Inserts e, waiting up to timeout for space. Returns false on timeout. Fails like put
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        byte[] bytes = encode(e);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity && !closed) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos); // time left
+            }
+            append(bytes);
+            awaitSynced(writePosition);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public E take() throws InterruptedException {
+        byte[] bytes;
+        lock.lockInterruptibly();
+        try {
+            ensureOpen();
+            while (count == 0) {
+                notEmpty.await();
+                ensureOpen();
+            }
+            bytes = read();
+        } finally {
+            lock.unlock();
+        }
+        return codec.decode(bytes); // outside the lock
+    }
+    
+    // Removes the head element, waiting up to timeout for one. Returns null on timeout
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        byte[] bytes;
+        lock.lockInterruptibly();
+        try {
+            ensureOpen();
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+                ensureOpen();
+            }
+            bytes = read();
+        } finally {
+            lock.unlock();
+        }
+        return codec.decode(bytes);
+    }
+    
+    // Number of elements put but not yet taken
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Forces everything to disk and unlocks the directory; blocked and later calls throw IllegalStateException
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notFull.signalAll();
+            notEmpty.signalAll();
+            try {
+                for (MappedByteBuffer segment : unforced) {
+                    segment.force();
+                }
+                writeSegment.force();
+                offset.force();
+                if (dirDirty) {
+                    syncDirUnchecked();
+                }
+            } finally {
+                try {
+                    dirLock.channel().close();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private byte[] encode(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        byte[] bytes = codec.encode(e);
+        if (bytes.length > segmentSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("record larger than a segment: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+    
+    // Appends one record. Called with lock held
+    private void append(byte[] bytes) {
+        ensureOpen();
+        int off = (int) (writePosition - writeIndex * segmentSize);
+        if (off + HEADER_SIZE + bytes.length > segmentSize) { // Doesn't fit: continue in a new segment
+            if (segmentSize - off >= HEADER_SIZE) {
+                writeSegment.putInt(off, END);
+            }
+            unforced.add(writeSegment); // the next group commit forces it, outside the lock
+            writeIndex++;
+            writeSegment = mapUnchecked(writeIndex);
+            dirDirty = true;
+            off = 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer b = writeSegment.duplicate();
+        b.position(off + HEADER_SIZE);
+        b.put(bytes);
+        writeSegment.putInt(off + 4, (int) crc.getValue());
+        writeSegment.putInt(off, bytes.length + 1); // Last, so a written length means a whole record
+        writePosition = writeIndex * segmentSize + off + HEADER_SIZE + bytes.length;
+        count++;
+        notEmpty.signal();
+    }
+    
+    /*
+     * Group commit: waits until everything before position is on disk. If no
+     * one is forcing, this thread does, for all records appended so far, with
+     * the lock released so other puts can append (and then wait) meanwhile:
+     * the segments rolled away from, the directory if a segment was created,
+     * then the current segment and the offset.
+     */
+    private void awaitSynced(long position) {
+        while (syncedPosition < position) {
+            if (syncing) {
+                synced.awaitUninterruptibly(); // the element is already in; don't report failure
+                continue;
+            }
+            syncing = true;
+            long target = writePosition;
+            MappedByteBuffer segment = writeSegment;
+            List<MappedByteBuffer> rolled = unforced;
+            unforced = new ArrayList<>();
+            boolean newSegment = dirDirty;
+            dirDirty = false;
+            boolean forced = false;
+            lock.unlock();
+            try {
+                for (MappedByteBuffer old : rolled) {
+                    old.force();
+                }
+                if (newSegment) {
+                    syncDirUnchecked();
+                }
+                segment.force();
+                offset.force();
+                forced = true;
+            } finally {
+                lock.lock();
+                syncing = false;
+                if (forced) {
+                    syncedPosition = Math.max(syncedPosition, target);
+                } else { // hand the work to the next waiter
+                    rolled.addAll(unforced);
+                    unforced = rolled;
+                    dirDirty |= newSegment;
+                }
+                synced.signalAll(); // on failure, the next waiter tries in turn
+            }
+        }
+    }
+    
+    // Reads one record's payload. Called with lock held and count > 0
+    private byte[] read() {
+        int off = (int) (readPosition - readIndex * segmentSize);
+        if (segmentSize - off < HEADER_SIZE || readSegment.getInt(off) == END) {
+            nextReadSegment();
+            off = 0;
+        }
+        int length = readSegment.getInt(off) - 1;
+        byte[] bytes = new byte[length];
+        ByteBuffer b = readSegment.duplicate();
+        b.position(off + HEADER_SIZE);
+        b.get(bytes);
+        readPosition += HEADER_SIZE + length;
+        offset.putLong(0, readPosition);
+        count--;
+        notFull.signal();
+        return bytes;
+    }
+    
+    // Moves the reader to the next segment and deletes the one it has finished
+    private void nextReadSegment() {
+        readPosition = (readIndex + 1) * segmentSize;
+        offset.putLong(0, readPosition);
+        offset.force(); // before the delete, so recovery never starts in a missing segment
+        try {
+            Files.deleteIfExists(segmentFile(readIndex));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        readIndex++;
+        readSegment = readIndex == writeIndex ? writeSegment : mapUnchecked(readIndex);
+    }
+    
+    /*
+     * Rebuilds the in-memory state from the files: drops segments the reader
+     * has finished, then walks the records after the consumer offset until the
+     * first missing, torn or corrupt one. Writing resumes there, and anything
+     * beyond it (never acknowledged by a put) is erased. An offset ahead of
+     * the durable end (the consumer took records whose force was lost) just
+     * finds nothing pending. An offset beyond the segments on disk is garbage:
+     * nothing is deleted and reading starts over at the oldest segment.
+     */
+    private void recover() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        readPosition = offset.getLong(0);
+        readIndex = readPosition / segmentSize;
+        if (!plausible(segments)) { // redelivering beats deleting the log
+            readIndex = segments.isEmpty() ? 0 : segments.firstKey();
+            readPosition = readIndex * segmentSize;
+        }
+        for (Path file : segments.headMap(readIndex).values()) {
+            Files.delete(file);
+        }
+        segments.headMap(readIndex).clear();
+        if (!segments.isEmpty() && segments.firstKey() > readIndex) { // Reader's segment is gone
+            readIndex = segments.firstKey();
+            readPosition = readIndex * segmentSize;
+        }
+        readSegment = map(readIndex);
+    
+        long index = readIndex;
+        MappedByteBuffer segment = readSegment;
+        int off = (int) (readPosition - readIndex * segmentSize);
+        for (;;) {
+            int marker = segmentSize - off < HEADER_SIZE ? END : segment.getInt(off);
+            if (marker == END) { // Continues in the next segment, if it was created
+                if (!segments.containsKey(index + 1)) {
+                    break;
+                }
+                index++;
+                segment = map(index);
+                off = 0;
+                continue;
+            }
+            int length = marker - 1;
+            if (length < 0 || length > segmentSize - off - HEADER_SIZE) { // Nothing written, or torn length
+                break;
+            }
+            if (!valid(segment, off, length)) { // Torn payload
+                break;
+            }
+            off += HEADER_SIZE + length;
+            count++;
+        }
+        writeIndex = index;
+        writeSegment = index == readIndex ? readSegment : segment;
+        writePosition = writeIndex * segmentSize + off;
+        syncedPosition = writePosition;
+    
+        int i = off; // Erase leftovers; only writes non-zero words, so untouched pages stay sparse
+        for (; i < segmentSize && (i & 7) != 0; i++) {
+            writeSegment.put(i, (byte) 0);
+        }
+        for (; i + Long.BYTES <= segmentSize; i += Long.BYTES) {
+            if (writeSegment.getLong(i) != 0) {
+                writeSegment.putLong(i, 0);
+            }
+        }
+        for (; i < segmentSize; i++) {
+            writeSegment.put(i, (byte) 0);
+        }
+        writeSegment.force();
+        for (Path file : segments.tailMap(writeIndex, false).values()) {
+            Files.delete(file);
+        }
+        syncDir(); // the offset and segment files created, and the ones deleted
+    }
+    
+    // Whether readPosition lies in an existing segment, or at the start of the one after the last
+    private boolean plausible(TreeMap<Long, Path> segments) {
+        if (readPosition < 0) {
+            return false;
+        }
+        long last = segments.isEmpty() ? -1 : segments.lastKey();
+        return readIndex <= last || readIndex == last + 1 && readPosition % segmentSize == 0;
+    }
+    
+    // Whether the record's payload matches its CRC; false for anything unreadable
+    private static boolean valid(MappedByteBuffer segment, int off, int length) {
+        try {
+            byte[] bytes = new byte[length];
+            ByteBuffer b = segment.duplicate();
+            b.position(off + HEADER_SIZE);
+            b.get(bytes);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            return (int) crc.getValue() == segment.getInt(off + 4);
+        } catch (RuntimeException | OutOfMemoryError ex) { // whatever the garbage, it ends the log
+            return false;
+        }
+    }
+    
+    // Makes file creations and deletions in dir durable
+    private void syncDir() throws IOException {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            if (!System.getProperty("os.name").startsWith("Windows")) { // can't open directories there
+                throw ex;
+            }
+        }
+    }
+    
+    private void syncDirUnchecked() {
+        try {
+            syncDir();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    private MappedByteBuffer map(long index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(index), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize); // the mapping outlives the channel
+        }
+    }
+    
+    // put/take have no IOException in their contract
+    private MappedByteBuffer mapUnchecked(long index) {
+        try {
+            return map(index);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    private Path segmentFile(long index) {
+        return dir.resolve(String.format("%019d", index) + SEGMENT_SUFFIX);
+    }
+    
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("queue closed");
+        }
+    }
+}
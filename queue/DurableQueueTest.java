@@ -0,0 +1,172 @@
+package queue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Crash recovery of DurableQueue: each case writes some records, damages the
+// files the way a crash could, and checks what reopening the queue recovers
+public class DurableQueueTest {
+    private static final int SEGMENT_SIZE = 256;
+    private static final int RECORD_SIZE = 8 + 4; // header + "recN"
+    private static final String OFFSET_FILE = "consumer.offset";
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        truncatedRecord();
+        garbageLength();
+        offsetPastDurableEnd();
+        garbageOffset();
+        smallerCapacity();
+        segmentRolls();
+        lockedDirectory();
+        System.out.println("All recovery cases passed");
+    }
+    
+    // The last record's payload only partly reached the disk: its CRC fails
+    private static void truncatedRecord() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("durable-queue");
+        write(dir, "rec0", "rec1", "rec2");
+        patch(segment(dir, 0), 2 * RECORD_SIZE + 8 + 2, new byte[2]);
+        expect(dir, "truncated record", "rec0", "rec1");
+        write(dir, "rec3"); // resumes where rec2 was
+        expect(dir, "append after truncated record", "rec0", "rec1", "rec3");
+    }
+    
+    // A torn header whose length runs far past the segment (and would overflow an int sum)
+    private static void garbageLength() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("durable-queue");
+        write(dir, "rec0", "rec1");
+        patch(segment(dir, 0), 2 * RECORD_SIZE, ByteBuffer.allocate(8).putInt(0x7FFFFFF0).putInt(42).array());
+        expect(dir, "garbage length", "rec0", "rec1");
+        patch(segment(dir, 0), 0, ByteBuffer.allocate(4).putInt(0x7FFFFFF0).array());
+        expect(dir, "garbage first length");
+    }
+    
+    // The consumer's offset was forced, the records it had taken were not
+    private static void offsetPastDurableEnd() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("durable-queue");
+        write(dir, "rec0", "rec1");
+        patch(dir.resolve(OFFSET_FILE), 0, ByteBuffer.allocate(8).putLong(5 * RECORD_SIZE).array());
+        expect(dir, "offset past the durable end");
+        write(dir, "rec2");
+        expect(dir, "append after offset past the end", "rec2");
+        patch(dir.resolve(OFFSET_FILE), 0, ByteBuffer.allocate(8).putLong(SEGMENT_SIZE).array());
+        expect(dir, "offset at a segment never created");
+    }
+    
+    // A corrupt offset far past every segment must not delete the log
+    private static void garbageOffset() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("durable-queue");
+        write(dir, "rec0", "rec1");
+        patch(dir.resolve(OFFSET_FILE), 0, ByteBuffer.allocate(8).putLong(1000L * SEGMENT_SIZE + 3).array());
+        expect(dir, "garbage offset", "rec0", "rec1");
+        patch(dir.resolve(OFFSET_FILE), 0, ByteBuffer.allocate(8).putLong(-5).array());
+        expect(dir, "negative offset", "rec0", "rec1");
+    }
+    
+    // A backlog recovered above the new capacity blocks puts until it drains below it
+    private static void smallerCapacity() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("durable-queue");
+        write(dir, "rec0", "rec1", "rec2", "rec3");
+        try (DurableQueue<String> queue = DurableQueue.open(dir, DurableQueue.utf8(), 2, SEGMENT_SIZE)) {
+            check("smaller capacity: size", 4, queue.size());
+            check("smaller capacity: offer when over", false, queue.offer("rec4", 1, TimeUnit.MILLISECONDS));
+            queue.take();
+            queue.take();
+            check("smaller capacity: offer at capacity", false, queue.offer("rec4", 1, TimeUnit.MILLISECONDS));
+            queue.take();
+            check("smaller capacity: offer below", true, queue.offer("rec4", 1, TimeUnit.MILLISECONDS));
+        }
+        expect(dir, "smaller capacity", "rec3", "rec4");
+    }
+    
+    // Records across several segments, with some taken before the "crash"
+    private static void segmentRolls() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("durable-queue");
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            all.add(String.format("r%03d", i));
+        }
+        write(dir, all.toArray(new String[0]));
+        try (DurableQueue<String> queue = open(dir)) {
+            for (int i = 0; i < 30; i++) {
+                check("take " + i, all.get(i), queue.take());
+            }
+        }
+        expect(dir, "segment rolls", all.subList(30, 50).toArray(new String[0]));
+    }
+    
+    private static void lockedDirectory() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("durable-queue");
+        try (DurableQueue<String> queue = open(dir)) {
+            queue.put("held");
+            try {
+                open(dir).close();
+                throw new AssertionError("opened a directory in use");
+            } catch (IOException expected) {
+            }
+        }
+        open(dir).close(); // unlocked by close
+    }
+    
+    private static DurableQueue<String> open(Path dir) throws IOException {
+        return DurableQueue.open(dir, DurableQueue.utf8(), Integer.MAX_VALUE, SEGMENT_SIZE);
+    }
+    
+    private static void write(Path dir, String... elements) throws IOException, InterruptedException {
+        try (DurableQueue<String> queue = open(dir)) {
+            for (String e : elements) {
+                queue.put(e);
+            }
+        }
+    }
+    
+    // Checks that reopening dir finds exactly the expected elements pending.
+    // Takes them from a copy, so dir is left as it was for the next step.
+    private static void expect(Path dir, String name, String... expected) throws IOException, InterruptedException {
+        Path copy = Files.createTempDirectory("durable-queue");
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.copy(file, copy.resolve(file.getFileName()));
+            }
+        }
+        List<String> got = new ArrayList<>();
+        try (DurableQueue<String> queue = open(copy)) {
+            check(name + ": size", expected.length, queue.size());
+            for (String e; (e = queue.poll(0, TimeUnit.NANOSECONDS)) != null;) {
+                got.add(e);
+            }
+        }
+        check(name, Arrays.asList(expected), got);
+        System.out.println(name + ": " + got);
+    }
+    
+    private static void patch(Path file, long position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+    
+    private static Path segment(Path dir, int n) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.log")) {
+            files.forEach(segments::add);
+        }
+        segments.sort(null);
+        return segments.get(n);
+    }
+    
+    private static void check(String name, Object expected, Object actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(name + ": expected " + expected + " but got " + actual);
+        }
+    }
+}
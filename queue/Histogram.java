@@ -0,0 +1,131 @@
+package queue;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free log-linear histogram of non-negative longs (wait times, queue
+ * depths, ...), in the style of HdrHistogram
+ * 
+ * Values below 32 get a bucket each; above that, every power of two is split
+ * into 32 buckets, so any value is recorded with under 1/32 (~3%) relative
+ * error in a fixed 15KB array, whatever the range. record() is one atomic
+ * increment and never allocates.
+ * 
+ * A histogram recorded into by many threads at once (say, queue depth on every
+ * enqueue and dequeue) should be striped: each thread then counts into one of
+ * several arrays, picked by thread id, and reads add the stripes up. A stripe's
+ * array is only allocated once some thread records into it.
+ */
+public class Histogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+    
+    private final AtomicReferenceArray<AtomicLongArray> stripes; // null until first recorded into
+    
+    public Histogram() {
+        this(1);
+    }
+    
+    // stripes is rounded up to a power of two
+    public Histogram(int stripes) {
+        if (stripes <= 0 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("stripes: " + stripes);
+        }
+        this.stripes = new AtomicReferenceArray<>(stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1);
+    }
+    
+    public void record(long value) {
+        int i = stripes.length() == 1 ? 0 : stripe(Thread.currentThread().getId());
+        AtomicLongArray counts = stripes.get(i);
+        if (counts == null) {
+            stripes.compareAndSet(i, null, new AtomicLongArray(BUCKETS));
+            counts = stripes.get(i); // ours, or the one that beat us to it
+        }
+        counts.incrementAndGet(bucket(Math.max(0, value)));
+    }
+    
+    private int stripe(long threadId) {
+        long h = threadId * 0x9E3779B97F4A7C15L; // thread ids are sequential: spread them
+        return (int) (h >>> 32) & (stripes.length() - 1);
+    }
+    
+    private long count(int b) {
+        long count = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            AtomicLongArray counts = stripes.get(i);
+            if (counts != null) {
+                count += counts.get(b);
+            }
+        }
+        return count;
+    }
+    
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+    
+    // Smallest value that falls in bucket b
+    private static long lowest(int b) {
+        if (b < SUB_BUCKETS) {
+            return b;
+        }
+        int shift = b / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + b % SUB_BUCKETS) << shift;
+    }
+    
+    public long count() {
+        long count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            count += count(b);
+        }
+        return count;
+    }
+    
+    /**
+     * Returns (the lower bound of the bucket of) the value at percentile p,
+     * or 0 if nothing was recorded. Counts are read one by one, so under
+     * concurrent recording this is a close but not atomic snapshot.
+     * 
+     * @param p between 0 and 100
+     */
+    public long percentile(double p) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += count(b);
+            if (seen >= rank) {
+                return lowest(b);
+            }
+        }
+        return lowest(BUCKETS - 1);
+    }
+    
+    public long max() {
+        for (int b = BUCKETS - 1; b >= 0; b--) {
+            if (count(b) > 0) {
+                return lowest(b);
+            }
+        }
+        return 0;
+    }
+    
+    public void reset() {
+        for (int i = 0; i < stripes.length(); i++) {
+            AtomicLongArray counts = stripes.get(i);
+            for (int b = 0; counts != null && b < BUCKETS; b++) {
+                counts.set(b, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package queue;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The blocking queues' locking, signalling and wait timing, reported to a
+ * QueueMetrics (QueueMetrics.DISABLED unless the queue was given one)
+ *
+ * A wait loop is timed like this, so the clock is only read once a thread
+ * actually blocks, and never when metrics are disabled:
+ *
+ *   long waitStart = 0;
+ *   while (full) {
+ *       waitStart = meter.startWait(waitStart);
+ *       notFull.await();
+ *   }
+ *   meter.putWaited(waitStart);
+ */
+final class Meter {
+    private final QueueMetrics metrics;
+    
+    Meter(QueueMetrics metrics) {
+        if (metrics == null) {
+            throw new NullPointerException();
+        }
+        this.metrics = metrics;
+    }
+    
+    // lock(), counting contention: tryLock first is as cheap as lock() when free
+    void lock(Lock lock) {
+        if (!lock.tryLock()) {
+            metrics.contended();
+            lock.lock();
+        }
+    }
+    
+    void lockInterruptibly(Lock lock) throws InterruptedException {
+        if (!lock.tryLock()) {
+            metrics.contended();
+            lock.lockInterruptibly();
+        }
+    }
+    
+    void signal(Condition condition) {
+        metrics.signalled();
+        condition.signal();
+    }
+    
+    void signalAll(Condition condition) {
+        metrics.signalled();
+        condition.signalAll();
+    }
+    
+    // Before each await of a wait loop: starts the clock the first time round
+    long startWait(long waitStart) {
+        return waitStart != 0 ? waitStart : metrics.now();
+    }
+    
+    // After a put's wait loop, with what startWait returned (0: didn't wait, or not measuring)
+    void putWaited(long waitStart) {
+        if (waitStart != 0) {
+            metrics.putWaited(metrics.now() - waitStart);
+        }
+    }
+    
+    void takeWaited(long waitStart) {
+        if (waitStart != 0) {
+            metrics.takeWaited(metrics.now() - waitStart);
+        }
+    }
+    
+    void enqueued(int n, int size) {
+        metrics.enqueued(n, size);
+    }
+    
+    void dequeued(int n, int size) {
+        metrics.dequeued(n, size);
+    }
+}
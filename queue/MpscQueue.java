@@ -0,0 +1,139 @@
+package queue;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer single-consumer queue with a pluggable WaitStrategy
+ * 
+ * Same slot-sequence ring as RingBufferQueue, but with one consumer the take
+ * side needs no CAS: only producers race for positions. A consumer that runs
+ * out of spins parks and is unparked by the next producer, instead of going
+ * through a lock and condition on every empty -> non-empty transition.
+ * 
+ * poll/take must only ever be called by one thread at a time.
+ * Producers waiting on a full queue back off with the same strategy, then
+ * with short timed parks.
+ *
+ * @param <E>
+ */
+
+public class MpscQueue<E> {
+    private static final long FULL_PARK_NANOS = 50_000;
+    
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final RingBufferQueue.PaddedAtomicLong head = new RingBufferQueue.PaddedAtomicLong(); // consumer only
+    private final RingBufferQueue.PaddedAtomicLong tail = new RingBufferQueue.PaddedAtomicLong();
+    
+    private final WaitStrategy waitStrategy;
+    private final boolean mayPark;
+    private final Parker notEmpty = new Parker();
+    
+    // The capacity is rounded up to a power of two
+    public MpscQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException();
+        }
+        int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        buffer = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        this.mayPark = waitStrategy.mayPark();
+    }
+    
+    // Inserts e if there is room. Returns false if the queue is full
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long pos = tail.get();
+        for (;;) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer[index] = e;
+                    sequences.lazySet(index, pos + 1);
+                    if (mayPark) {
+                        notEmpty.wake();
+                    }
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) { // Full
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+    
+    // Removes the head element. Returns null if the queue is empty. Consumer thread only
+    public E poll() {
+        long pos = head.get();
+        int index = (int) pos & mask;
+        if (sequences.get(index) != pos + 1) { // Not filled yet
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        E e = (E) buffer[index];
+        buffer[index] = null;
+        sequences.lazySet(index, pos + mask + 1);
+        head.lazySet(pos + 1);
+        return e;
+    }
+    
+    public void put(E e) throws InterruptedException {
+        for (int idle = 0; !offer(e); idle++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!waitStrategy.idle(idle)) {
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+            }
+        }
+    }
+    
+    // Consumer thread only
+    public E take() throws InterruptedException {
+        E e;
+        for (int idle = 0; (e = poll()) == null; idle++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!waitStrategy.idle(idle)) {
+                notEmpty.arm();
+                try {
+                    if ((e = poll()) != null) { // Re-check after publishing ourselves
+                        return e;
+                    }
+                    notEmpty.park(this);
+                } finally {
+                    notEmpty.disarm();
+                }
+            }
+        }
+        return e;
+    }
+    
+    // Number of elements in the queue; only a snapshot under concurrent use
+    public int size() {
+        for (;;) {
+            long h = head.get();
+            long t = tail.get();
+            if (h == head.get()) {
+                return (int) Math.max(0, Math.min(t - h, buffer.length));
+            }
+        }
+    }
+    
+    public int capacity() {
+        return buffer.length;
+    }
+}
@@ -0,0 +1,38 @@
+package queue;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wake-up slot for the single thread that may wait on one side of a queue
+ * 
+ * The waiter publishes itself, re-checks its condition and only then parks;
+ * the other side makes progress, then (after a full fence) unparks whoever
+ * is published. One side's write is always seen by the other's read, so a
+ * wake-up can't be lost.
+ */
+final class Parker {
+    private volatile Thread waiter;
+    
+    // Step 1 for the waiter: publish, then re-check the condition before park()
+    void arm() {
+        waiter = Thread.currentThread();
+    }
+    
+    void park(Object blocker) {
+        LockSupport.park(blocker);
+    }
+    
+    void disarm() {
+        waiter = null;
+    }
+    
+    // For the other side, after its progress is visible
+    void wake() {
+        VarHandle.fullFence(); // order the (lazy) publish before reading waiter
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+    }
+}
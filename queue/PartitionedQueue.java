@@ -0,0 +1,209 @@
+package queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Blocking queue split into BlockingQueue shards so producers and consumers
+ * don't all meet on one pair of locks
+ * 
+ * Elements are routed by the hash of their key, so elements with the same key
+ * land in the same shard and are taken in put order. Each consumer calls
+ * take(shard) on the shard(s) it owns; when that shard is empty and stealing
+ * is enabled it takes from the others instead of sitting idle.
+ * 
+ * Stealing trades ordering for throughput: a thief and the owner may then be
+ * working on two elements of the same key at once. Disable it when per-key
+ * processing order matters, not just dequeue order.
+ * 
+ * The capacity is split evenly over the shards, each bounding itself: a put
+ * waits only for room in its own shard, and puts and takes on different
+ * shards share no lock or counter. A hot key can therefore block its shard's
+ * producers while other shards still have room.
+ * 
+ * With stealing, a consumer that finds every shard empty waits on one shared
+ * condition instead of its own shard, and a put signals it if anyone waits,
+ * so an idle consumer wakes for work in any shard without polling.
+ *
+ * @param <E>
+ */
+
+public class PartitionedQueue<E> {
+    private final BlockingQueue<E>[] shards;
+    private final Function<? super E, ?> keyOf;
+    private final boolean stealing;
+    private final int capacity;
+    
+    // Stealing consumers that found all shards empty wait here
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition workAvailable = idleLock.newCondition();
+    private final AtomicInteger idle = new AtomicInteger(); // consumers waiting, or about to
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public PartitionedQueue(int shards, int capacity, Function<? super E, ?> keyOf, boolean stealing) {
+        if (shards <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if (keyOf == null) {
+            throw new NullPointerException();
+        }
+        int shardCapacity = (int) (((long) capacity + shards - 1) / shards); // rounded up, so at least 1 each
+        this.shards = new BlockingQueue[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new BlockingQueue<E>(shardCapacity);
+        }
+        this.keyOf = keyOf;
+        this.stealing = stealing;
+        this.capacity = (int) Math.min(Integer.MAX_VALUE, (long) shardCapacity * shards);
+    }
+    
+    public void put(E e) throws InterruptedException {
+        shards[shardOf(e)].put(e); // shardOf also rejects null
+        wakeIdle();
+    }
+    
+    // Returns false if e's shard had no room within timeout
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!shards[shardOf(e)].offer(e, timeout, unit)) {
+            return false;
+        }
+        wakeIdle();
+        return true;
+    }
+    
+    private void wakeIdle() {
+        // A consumer bumps idle before its last look at the shards, and we
+        // read it after queueing e, so either it sees e or we see it waiting
+        if (stealing && idle.get() > 0) {
+            idleLock.lock();
+            try {
+                workAvailable.signal();
+            } finally {
+                idleLock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Removes an element from the given shard, waiting if necessary. With
+     * stealing enabled, an empty shard falls back to the other shards, and
+     * the wait ends on a put to any shard.
+     * 
+     * @param shard index of the shard owned by the calling consumer
+     * @return the element
+     * @throws InterruptedException
+     */
+    public E take(int shard) throws InterruptedException {
+        BlockingQueue<E> own = shards[shard];
+        if (!stealing) {
+            return own.take();
+        }
+        for (;;) {
+            E e = tryTake(shard);
+            if (e == null) {
+                idleLock.lockInterruptibly();
+                try {
+                    idle.incrementAndGet();
+                    try {
+                        e = tryTake(shard); // Re-check now that puts will signal us
+                        if (e == null) {
+                            workAvailable.await();
+                        }
+                    } finally {
+                        idle.decrementAndGet();
+                    }
+                } finally {
+                    idleLock.unlock();
+                }
+            }
+            if (e != null) {
+                return e;
+            }
+        }
+    }
+    
+    // Removes an element from the given shard, waiting up to timeout. Returns null on timeout
+    public E poll(int shard, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!stealing) {
+            return shards[shard].poll(timeout, unit);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            E e = tryTake(shard);
+            if (e == null) {
+                long nanos = deadline - System.nanoTime();
+                if (nanos <= 0) {
+                    return null;
+                }
+                idleLock.lockInterruptibly();
+                try {
+                    idle.incrementAndGet();
+                    try {
+                        e = tryTake(shard);
+                        if (e == null) {
+                            workAvailable.awaitNanos(nanos);
+                        }
+                    } finally {
+                        idle.decrementAndGet();
+                    }
+                } finally {
+                    idleLock.unlock();
+                }
+            }
+            if (e != null) {
+                return e;
+            }
+        }
+    }
+    
+    // Own shard first, then the others; null if all are empty
+    private E tryTake(int shard) throws InterruptedException {
+        E e = shards[shard].poll(0, TimeUnit.NANOSECONDS);
+        return e != null ? e : steal(shard);
+    }
+    
+    // One pass over the other shards, starting after our own
+    private E steal(int shard) throws InterruptedException {
+        for (int i = 1; i < shards.length; i++) {
+            BlockingQueue<E> victim = shards[(shard + i) % shards.length];
+            if (victim.size() > 0) { // Skip the lock for empty shards
+                E e = victim.poll(0, TimeUnit.NANOSECONDS);
+                if (e != null) {
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+    
+    // Shard that e (that is, its key) is routed to
+    public int shardOf(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        int h = keyOf.apply(e).hashCode();
+        h ^= h >>> 16; // spread the high bits, as HashMap does
+        return Math.floorMod(h, shards.length);
+    }
+    
+    public int shards() {
+        return shards.length;
+    }
+    
+    // Number of elements in all shards; only a snapshot under concurrent use
+    public int size() {
+        int size = 0;
+        for (BlockingQueue<E> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+    
+    // The capacity asked for, rounded up to a multiple of the number of shards
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,244 @@
+package queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Producer/consumer pipeline: source -> transform -> ... -> sink
+ * 
+ * Each stage runs on its own thread and hands items to the next one through
+ * a bounded BlockingQueue, so a slow stage back-pressures the ones before it.
+ * Threads come from a ThreadFactory; by default virtual threads when the JVM
+ * has them (Java 21+), which park without pinning on the queues' locks.
+ * 
+ * The pipeline shuts down on its own once the source returns and every item
+ * has reached the sink. If any stage throws, or cancel() is called, all
+ * stages are interrupted and await() reports it.
+ * 
+ *   Pipeline.from(out -> { for (String line : lines) out.emit(line); })
+ *           .map(String::trim)
+ *           .to(System.out::println)
+ *           .await();
+ * 
+ * @param <T> type of the items leaving the last stage so far
+ */
+
+public class Pipeline<T> {
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final Object END = new Object(); // End of stream marker
+    
+    public interface Emitter<T> {
+        void emit(T item) throws InterruptedException;
+    }
+    
+    public interface Source<T> {
+        // Emits every item, then returns
+        void run(Emitter<T> out) throws Exception;
+    }
+    
+    public interface Stage<T, R> {
+        // Returns the item for the next stage, or null to drop it
+        R apply(T item) throws Exception;
+    }
+    
+    public interface Sink<T> {
+        void accept(T item) throws Exception;
+    }
+    
+    private final Source<?> source;
+    private final List<Stage<Object, Object>> stages;
+    private final int capacity;
+    private final ThreadFactory threadFactory;
+    
+    private Pipeline(Source<?> source, List<Stage<Object, Object>> stages, int capacity,
+            ThreadFactory threadFactory) {
+        this.source = source;
+        this.stages = stages;
+        this.capacity = capacity;
+        this.threadFactory = threadFactory;
+    }
+    
+    public static <T> Pipeline<T> from(Source<T> source) {
+        if (source == null) {
+            throw new NullPointerException();
+        }
+        return new Pipeline<T>(source, new ArrayList<Stage<Object, Object>>(), DEFAULT_CAPACITY,
+                defaultThreadFactory());
+    }
+    
+    // Capacity of each queue between two stages
+    public Pipeline<T> capacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        return new Pipeline<T>(source, stages, capacity, threadFactory);
+    }
+    
+    public Pipeline<T> threadFactory(ThreadFactory threadFactory) {
+        if (threadFactory == null) {
+            throw new NullPointerException();
+        }
+        return new Pipeline<T>(source, stages, capacity, threadFactory);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <R> Pipeline<R> map(Stage<? super T, ? extends R> stage) {
+        if (stage == null) {
+            throw new NullPointerException();
+        }
+        List<Stage<Object, Object>> next = new ArrayList<>(stages);
+        next.add((Stage<Object, Object>) stage);
+        return new Pipeline<R>(source, next, capacity, threadFactory);
+    }
+    
+    // Starts every stage, ending in sink
+    public Running to(Sink<? super T> sink) {
+        if (sink == null) {
+            throw new NullPointerException();
+        }
+        return new Running(sink);
+    }
+    
+    /**
+     * Virtual threads when available (Java 21+), else daemon platform threads.
+     * Looked up reflectively so this still compiles and runs on older JDKs.
+     */
+    public static ThreadFactory defaultThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            ThreadFactory platform = Executors.defaultThreadFactory();
+            return r -> {
+                Thread t = platform.newThread(r);
+                t.setDaemon(true);
+                return t;
+            };
+        }
+    }
+    
+    // A started pipeline
+    public class Running {
+        private static final int RUNNING = 0;
+        private static final int FINISHED = 1;
+        private static final int CANCELLED = 2;
+        
+        private final List<Thread> threads = new ArrayList<>();
+        private final CountDownLatch done;
+        private final AtomicInteger remaining; // stages still running; the last one sets FINISHED
+        private final AtomicInteger state = new AtomicInteger(RUNNING); // cancel and finishing race on it
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        
+        @SuppressWarnings("unchecked")
+        private Running(Sink<? super T> sink) {
+            done = new CountDownLatch(stages.size() + 2);
+            remaining = new AtomicInteger(stages.size() + 2);
+            BlockingQueue<Object> in = new BlockingQueue<>(capacity);
+            BlockingQueue<Object> first = in;
+            threads.add(threadFactory.newThread(task(() -> {
+                ((Source<Object>) source).run(first::put);
+                first.put(END);
+            })));
+            for (Stage<Object, Object> stage : stages) {
+                BlockingQueue<Object> from = in;
+                BlockingQueue<Object> to = new BlockingQueue<>(capacity);
+                threads.add(threadFactory.newThread(task(() -> {
+                    for (Object item = from.take(); item != END; item = from.take()) {
+                        Object res = stage.apply(item);
+                        if (res != null) {
+                            to.put(res);
+                        }
+                    }
+                    to.put(END);
+                })));
+                in = to;
+            }
+            BlockingQueue<Object> last = in;
+            threads.add(threadFactory.newThread(task(() -> {
+                for (Object item = last.take(); item != END; item = last.take()) {
+                    ((Sink<Object>) sink).accept(item);
+                }
+            })));
+            for (Thread t : threads) {
+                t.start();
+            }
+        }
+        
+        private Runnable task(Step step) {
+            return () -> {
+                try {
+                    step.run();
+                } catch (Throwable ex) {
+                    // The first real failure wins; stages interrupted because of it just stop
+                    if (state.get() != CANCELLED && !(ex instanceof InterruptedException && failure.get() != null)) {
+                        if (failure.compareAndSet(null, ex)) {
+                            interruptAll();
+                        }
+                    }
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        state.compareAndSet(RUNNING, FINISHED); // before await() can return
+                    }
+                    done.countDown();
+                }
+            };
+        }
+        
+        // Stops every stage; items in flight are dropped. No effect once every stage has finished
+        public void cancel() {
+            if (state.compareAndSet(RUNNING, CANCELLED)) {
+                interruptAll();
+            }
+        }
+        
+        private void interruptAll() {
+            for (Thread t : threads) {
+                t.interrupt();
+            }
+        }
+        
+        /**
+         * Waits for the pipeline to finish
+         * 
+         * @throws ExecutionException if a stage threw
+         * @throws CancellationException if cancel() was called before the pipeline finished
+         * @throws InterruptedException
+         */
+        public void await() throws InterruptedException, ExecutionException {
+            done.await();
+            check();
+        }
+        
+        // Returns false if the pipeline was still running after timeout
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException {
+            if (!done.await(timeout, unit)) {
+                return false;
+            }
+            check();
+            return true;
+        }
+        
+        private void check() throws ExecutionException {
+            if (state.get() == CANCELLED) {
+                throw new CancellationException();
+            }
+            Throwable ex = failure.get();
+            if (ex != null) {
+                throw new ExecutionException(ex);
+            }
+        }
+    }
+    
+    private interface Step {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,39 @@
+package queue;
+
+/**
+ * Opt-in instrumentation hooks for the blocking queues
+ * 
+ * A queue calls these on its hot path, so the default (DISABLED) does
+ * nothing: every hook is an empty default method the JIT inlines away, and
+ * now() returns 0, which tells the queue not to read the clock at all.
+ * Waits are only timed when a thread actually blocks, so even when enabled
+ * the uncontended fast path never calls System.nanoTime().
+ * 
+ * See StripedQueueMetrics for a ready-made implementation.
+ */
+public interface QueueMetrics {
+    QueueMetrics DISABLED = new QueueMetrics() {};
+    
+    // Start of a wait; 0 means "not measuring"
+    default long now() {
+        return 0;
+    }
+    
+    // A put waited this long in notFull
+    default void putWaited(long nanos) {}
+    
+    // A take waited this long in notEmpty
+    default void takeWaited(long nanos) {}
+    
+    // n elements went in, leaving size in the queue
+    default void enqueued(int n, int size) {}
+    
+    // n elements came out, leaving size in the queue
+    default void dequeued(int n, int size) {}
+    
+    // A lock was already held when a thread tried to take it
+    default void contended() {}
+    
+    // A waiting thread was signalled
+    default void signalled() {}
+}
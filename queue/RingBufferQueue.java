@@ -0,0 +1,209 @@
+package queue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free bounded multi-producer multi-consumer queue over a ring buffer
+ * (Dmitry Vyukov's bounded MPMC queue, the same idea as the LMAX Disruptor)
+ * 
+ * Every slot has a sequence number telling whose turn it is: a producer may
+ * fill slot (pos & mask) when its sequence == pos, a consumer may empty it
+ * when its sequence == pos + 1. Producers and consumers each claim a position
+ * with one CAS on tail / head, so nothing is allocated per element and no
+ * thread ever holds a lock.
+ * 
+ * put/take spin, then yield, then park briefly while the queue is full/empty.
+ *
+ * @param <E>
+ */
+
+public class RingBufferQueue<E> {
+    private static final int SPINS = 64;     // busy spins before yielding
+    private static final int YIELDS = 64;    // yields before parking
+    private static final long MAX_PARK_NANOS = 1L << 20; // ~1ms
+    
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    
+    // Head and tail are hit by every consumer and every producer respectively;
+    // padding keeps them on separate cache lines so they don't false-share
+    private final PaddedAtomicLong head = new PaddedAtomicLong(); // next position to take
+    private final PaddedAtomicLong tail = new PaddedAtomicLong(); // next position to put
+    
+    /*
+     * A volatile long with 56 bytes of padding on both sides, so neither the
+     * object allocated before it nor the one after can share its cache line.
+     * Fields of a superclass are laid out before those of its subclasses,
+     * hence the chain: left padding, then the value, then right padding.
+     * cache is a plain word for the owning thread's use, inside the padding
+     * with the value (SpscQueue keeps its copy of the other side's index there).
+     */
+    static class LeftPadding {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+    
+    static class PaddedValue extends LeftPadding {
+        volatile long value;
+        long cache;
+    }
+    
+    static final class PaddedAtomicLong extends PaddedValue {
+        long p11, p12, p13, p14, p15, p16, p17;
+        
+        private static final VarHandle VALUE;
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(PaddedValue.class, "value", long.class);
+            } catch (ReflectiveOperationException ex) {
+                throw new ExceptionInInitializerError(ex);
+            }
+        }
+        
+        long get() {
+            return value;
+        }
+        
+        // Ordered store, like AtomicLong.lazySet
+        void lazySet(long newValue) {
+            VALUE.setRelease(this, newValue);
+        }
+        
+        boolean compareAndSet(long expected, long newValue) {
+            return VALUE.compareAndSet(this, expected, newValue);
+        }
+    }
+    
+    // The capacity is rounded up to a power of two
+    public RingBufferQueue(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException();
+        }
+        int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        buffer = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+    
+    // Inserts e if there is room. Returns false if the queue is full
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long pos = tail.get();
+        for (;;) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) { // Slot is free for this position
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer[index] = e;
+                    sequences.lazySet(index, pos + 1); // publish to consumers
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) { // Slot still holds the element from one lap ago
+                return false;
+            } else { // Another producer took this position
+                pos = tail.get();
+            }
+        }
+    }
+    
+    // Removes the head element. Returns null if the queue is empty
+    public E poll() {
+        long pos = head.get();
+        for (;;) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) { // Slot is filled for this position
+                if (head.compareAndSet(pos, pos + 1)) {
+                    @SuppressWarnings("unchecked")
+                    E e = (E) buffer[index];
+                    buffer[index] = null;
+                    sequences.lazySet(index, pos + mask + 1); // free for the next lap
+                    return e;
+                }
+                pos = head.get();
+            } else if (diff < 0) { // Not filled yet
+                return null;
+            } else { // Another consumer took this position
+                pos = head.get();
+            }
+        }
+    }
+    
+    public void put(E e) throws InterruptedException {
+        for (int idle = 0; !offer(e); idle++) {
+            idle(idle);
+        }
+    }
+    
+    public E take() throws InterruptedException {
+        E e;
+        for (int idle = 0; (e = poll()) == null; idle++) {
+            idle(idle);
+        }
+        return e;
+    }
+    
+    // Inserts e, backing off as put does for up to timeout. Returns false on timeout
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int idle = 0; !offer(e); idle++) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            idle(idle);
+        }
+        return true;
+    }
+    
+    // Removes the head element, backing off as take does for up to timeout. Returns null on timeout
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        for (int idle = 0; (e = poll()) == null; idle++) {
+            if (System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+            idle(idle);
+        }
+        return e;
+    }
+    
+    // Back off a little more each time round
+    private static void idle(int idle) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (idle < SPINS) {
+            Thread.onSpinWait();
+        } else if (idle < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1L << Math.min(idle - SPINS - YIELDS, 20)));
+        }
+    }
+    
+    // Number of elements in the queue; only a snapshot under concurrent use
+    public int size() {
+        for (;;) {
+            long h = head.get();
+            long t = tail.get();
+            if (h == head.get()) { // consistent pair
+                return (int) Math.max(0, Math.min(t - h, buffer.length));
+            }
+        }
+    }
+    
+    public int capacity() {
+        return buffer.length;
+    }
+}
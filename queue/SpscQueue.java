@@ -0,0 +1,140 @@
+package queue;
+
+/**
+ * Bounded single-producer single-consumer queue with a pluggable WaitStrategy
+ * 
+ * With one thread on each side no CAS is needed at all: the producer owns
+ * tail, the consumer owns head, and each publishes its index with an ordered
+ * (lazySet) store. Each side also caches the other's index and only re-reads
+ * it when the cached value says full / empty, so in steady state the two
+ * threads rarely touch each other's cache lines. The cache sits beside its
+ * owner's index, padded on both sides (RingBufferQueue.PaddedAtomicLong), so
+ * each thread only writes to its own line.
+ * 
+ * offer/put must only be called by one thread, and poll/take by one (other) thread.
+ *
+ * @param <E>
+ */
+
+public class SpscQueue<E> {
+    private final Object[] buffer;
+    private final int mask;
+    
+    // head.cache is the consumer's copy of tail, tail.cache the producer's copy of head
+    private final RingBufferQueue.PaddedAtomicLong head = new RingBufferQueue.PaddedAtomicLong(); // next to take
+    private final RingBufferQueue.PaddedAtomicLong tail = new RingBufferQueue.PaddedAtomicLong(); // next to put
+    
+    private final WaitStrategy waitStrategy;
+    private final boolean mayPark;
+    private final Parker notEmpty = new Parker(); // parked consumer
+    private final Parker notFull = new Parker();  // parked producer
+    
+    // The capacity is rounded up to a power of two
+    public SpscQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException();
+        }
+        int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        buffer = new Object[size];
+        mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        this.mayPark = waitStrategy.mayPark();
+    }
+    
+    // Inserts e if there is room. Returns false if the queue is full. Producer thread only
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long t = tail.get();
+        if (t - tail.cache > mask) {
+            tail.cache = head.get();
+            if (t - tail.cache > mask) { // Full
+                return false;
+            }
+        }
+        buffer[(int) t & mask] = e;
+        tail.lazySet(t + 1); // publish after the element
+        if (mayPark) {
+            notEmpty.wake();
+        }
+        return true;
+    }
+    
+    // Removes the head element. Returns null if the queue is empty. Consumer thread only
+    public E poll() {
+        long h = head.get();
+        if (h == head.cache) {
+            head.cache = tail.get();
+            if (h == head.cache) { // Empty
+                return null;
+            }
+        }
+        int index = (int) h & mask;
+        @SuppressWarnings("unchecked")
+        E e = (E) buffer[index];
+        buffer[index] = null;
+        head.lazySet(h + 1);
+        if (mayPark) {
+            notFull.wake();
+        }
+        return e;
+    }
+    
+    // Producer thread only
+    public void put(E e) throws InterruptedException {
+        for (int idle = 0; !offer(e); idle++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!waitStrategy.idle(idle)) {
+                notFull.arm();
+                try {
+                    if (offer(e)) { // Re-check after publishing ourselves
+                        return;
+                    }
+                    notFull.park(this);
+                } finally {
+                    notFull.disarm();
+                }
+            }
+        }
+    }
+    
+    // Consumer thread only
+    public E take() throws InterruptedException {
+        E e;
+        for (int idle = 0; (e = poll()) == null; idle++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!waitStrategy.idle(idle)) {
+                notEmpty.arm();
+                try {
+                    if ((e = poll()) != null) {
+                        return e;
+                    }
+                    notEmpty.park(this);
+                } finally {
+                    notEmpty.disarm();
+                }
+            }
+        }
+        return e;
+    }
+    
+    // Number of elements in the queue; only a snapshot under concurrent use
+    public int size() {
+        for (;;) {
+            long h = head.get();
+            long t = tail.get();
+            if (h == head.get()) {
+                return (int) Math.max(0, Math.min(t - h, buffer.length));
+            }
+        }
+    }
+    
+    public int capacity() {
+        return buffer.length;
+    }
+}
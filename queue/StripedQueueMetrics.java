@@ -0,0 +1,125 @@
+package queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * QueueMetrics backed by striped counters (LongAdder) and log-linear histograms
+ * 
+ * Counters are striped so that producers and consumers bumping them on
+ * different cores don't contend on one cache line. Queue depth is sampled on
+ * every enqueue/dequeue into its own histogram, striped the same way since
+ * every producer and consumer records into it.
+ * 
+ * @see Histogram
+ */
+public class StripedQueueMetrics implements QueueMetrics {
+    private static final int DEPTH_STRIPES = 2 * Runtime.getRuntime().availableProcessors();
+    
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dequeued = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder signalled = new LongAdder();
+    private final Histogram putWait = new Histogram();  // nanos
+    private final Histogram takeWait = new Histogram(); // nanos
+    private final Histogram depth = new Histogram(DEPTH_STRIPES); // elements
+    private volatile long since = System.nanoTime();
+    
+    @Override
+    public long now() {
+        long now = System.nanoTime();
+        return now == 0 ? 1 : now; // 0 means "not measuring"
+    }
+    
+    @Override
+    public void putWaited(long nanos) {
+        putWait.record(nanos);
+    }
+    
+    @Override
+    public void takeWaited(long nanos) {
+        takeWait.record(nanos);
+    }
+    
+    @Override
+    public void enqueued(int n, int size) {
+        enqueued.add(n);
+        depth.record(size);
+    }
+    
+    @Override
+    public void dequeued(int n, int size) {
+        dequeued.add(n);
+        depth.record(size);
+    }
+    
+    @Override
+    public void contended() {
+        contended.increment();
+    }
+    
+    @Override
+    public void signalled() {
+        signalled.increment();
+    }
+    
+    public long enqueuedCount() {
+        return enqueued.sum();
+    }
+    
+    public long dequeuedCount() {
+        return dequeued.sum();
+    }
+    
+    public long contendedCount() {
+        return contended.sum();
+    }
+    
+    public long signalledCount() {
+        return signalled.sum();
+    }
+    
+    // Elements enqueued per second since creation or the last reset
+    public double enqueueRate() {
+        long nanos = Math.max(1, System.nanoTime() - since);
+        return enqueuedCount() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+    
+    // Time puts spent blocked on a full queue (only puts that blocked are recorded)
+    public Histogram putWait() {
+        return putWait;
+    }
+    
+    // Time takes spent blocked on an empty queue (only takes that blocked are recorded)
+    public Histogram takeWait() {
+        return takeWait;
+    }
+    
+    // Queue depth seen after each enqueue/dequeue
+    public Histogram depth() {
+        return depth;
+    }
+    
+    public void reset() {
+        enqueued.reset();
+        dequeued.reset();
+        contended.reset();
+        signalled.reset();
+        putWait.reset();
+        takeWait.reset();
+        depth.reset();
+        since = System.nanoTime();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("enqueued=%d (%.0f/s) dequeued=%d contended=%d signalled=%d"
+                + " putWait[p50=%dns p99=%dns max=%dns n=%d]"
+                + " takeWait[p50=%dns p99=%dns max=%dns n=%d]"
+                + " depth[p50=%d p99=%d max=%d]",
+                enqueuedCount(), enqueueRate(), dequeuedCount(), contendedCount(), signalledCount(),
+                putWait.percentile(50), putWait.percentile(99), putWait.max(), putWait.count(),
+                takeWait.percentile(50), takeWait.percentile(99), takeWait.max(), takeWait.count(),
+                depth.percentile(50), depth.percentile(99), depth.max());
+    }
+}
@@ -0,0 +1,72 @@
+package queue;
+
+/**
+ * How a thread waits on MpscQueue / SpscQueue while it can't make progress
+ * 
+ * Spinning answers fastest but burns a core; parking frees the core but a
+ * park/unpark round trip costs microseconds. Pick per consumer:
+ *   busySpin()                 lowest latency, one core per waiter
+ *   spinThenYield(spins)       low latency, lets other threads run
+ *   spinThenPark(spins, yields) CPU-friendly; latency only suffers after the spins
+ */
+public interface WaitStrategy {
+    /**
+     * Backs off once; idle is the number of times in a row this wait has
+     * already backed off (0 the first time)
+     * 
+     * @return false once the caller should stop backing off and park until woken
+     */
+    boolean idle(int idle);
+    
+    // Whether idle() can ever return false. If not, producers skip the wake-up check entirely
+    boolean mayPark();
+    
+    static WaitStrategy busySpin() {
+        return new WaitStrategy() {
+            public boolean idle(int idle) {
+                Thread.onSpinWait();
+                return true;
+            }
+            
+            public boolean mayPark() {
+                return false;
+            }
+        };
+    }
+    
+    static WaitStrategy spinThenYield(int spins) {
+        return new WaitStrategy() {
+            public boolean idle(int idle) {
+                if (idle < spins) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+                return true;
+            }
+            
+            public boolean mayPark() {
+                return false;
+            }
+        };
+    }
+    
+    static WaitStrategy spinThenPark(int spins, int yields) {
+        return new WaitStrategy() {
+            public boolean idle(int idle) {
+                if (idle < spins) {
+                    Thread.onSpinWait();
+                } else if (idle < spins + yields) {
+                    Thread.yield();
+                } else {
+                    return false;
+                }
+                return true;
+            }
+            
+            public boolean mayPark() {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package stack;
+
+import java.util.EmptyStackException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free stack: Treiber stack with elimination backoff
+ * (Hendler, Shavit and Yerushalmi)
+ * 
+ * push and pop CAS the top of a linked list. When that CAS fails because of
+ * contention, the thread backs off into an elimination array instead of
+ * retrying at once: a push parks its node in a random slot for a moment, and
+ * a pop that finds it there takes it directly. A matching push/pop pair
+ * cancels out without touching top at all, so the more threads contend the
+ * more operations bypass the hot spot.
+ * 
+ * Every push allocates a new node, so the ABA problem can't arise.
+ */
+
+public class ConcurrentStack<E> {
+    private static final int SLOTS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int SPINS = 128; // How long a push waits in a slot for a pop
+    
+    private static class Node<E> {
+        final E item;
+        Node<E> next;
+        int size; // Elements from here down, so size() is just top.size
+        
+        Node(E item) {
+            this.item = item;
+        }
+    }
+    
+    private final AtomicReference<Node<E>> top = new AtomicReference<>();
+    private final AtomicReferenceArray<Node<E>> slots = new AtomicReferenceArray<>(SLOTS);
+    
+    public void push(E item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        Node<E> node = new Node<E>(item);
+        for (;;) {
+            Node<E> t = top.get();
+            node.next = t;
+            node.size = t == null ? 1 : t.size + 1;
+            if (top.compareAndSet(t, node) || eliminate(node)) {
+                return;
+            }
+        }
+    }
+    
+    public E pop() {
+        E item = tryPop();
+        if (item == null) {
+            throw new EmptyStackException();
+        }
+        return item;
+    }
+    
+    // Like pop, but returns null instead of throwing when the stack is empty
+    public E tryPop() {
+        for (;;) {
+            Node<E> t = top.get();
+            if (t == null) {
+                return null;
+            }
+            if (top.compareAndSet(t, t.next)) {
+                return t.item;
+            }
+            Node<E> node = eliminate();
+            if (node != null) {
+                return node.item;
+            }
+        }
+    }
+    
+    // Number of elements; exact as of the moment top is read
+    public int size() {
+        Node<E> t = top.get();
+        return t == null ? 0 : t.size;
+    }
+    
+    public boolean isEmpty() {
+        return top.get() == null;
+    }
+    
+    // Push side: offer node in a random slot. Returns true if a pop took it
+    private boolean eliminate(Node<E> node) {
+        int i = ThreadLocalRandom.current().nextInt(SLOTS);
+        if (!slots.compareAndSet(i, null, node)) { // Slot busy: just retry on top
+            return false;
+        }
+        for (int spin = 0; spin < SPINS; spin++) {
+            if (slots.get(i) != node) { // Taken
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        // Withdraw; if that fails a pop took it in the meantime
+        return !slots.compareAndSet(i, node, null);
+    }
+    
+    // Pop side: take a node waiting in a random slot, or null if none
+    private Node<E> eliminate() {
+        int i = ThreadLocalRandom.current().nextInt(SLOTS);
+        Node<E> node = slots.get(i);
+        if (node != null && slots.compareAndSet(i, node, null)) {
+            return node;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package stack;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.Objects;
+
+/**
+ * Stack of primitive longs atop of a long[], so pushes never box
+ */
+
+public class LongStack {
+    // The actual array to store the elements of the stack
+    private long[] element;
+    
+    // Initial size of the stack
+    private static final int INIT_SIZE = 16;
+
+    // Stack size
+    private int size;
+    
+    // When to give memory back after a spike
+    private final ShrinkPolicy shrinkPolicy;
+    
+    public LongStack() {
+        this(ShrinkPolicy.NEVER);
+    }
+    
+    public LongStack(ShrinkPolicy shrinkPolicy) {
+        element = new long[INIT_SIZE];
+        this.shrinkPolicy = Objects.requireNonNull(shrinkPolicy);
+    }
+    
+    public void push(long item) {
+        ensureCapacity();
+        element[size++] = item;
+    }
+
+    public long pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        long item = element[--size];
+        shrink();
+        return item;
+    }
+    
+    public long peek() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return element[size - 1];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    private void ensureCapacity() {
+        if (size == element.length) { // The array is full
+            int newSize = size > (Integer.MAX_VALUE - 1) / 2 ? Integer.MAX_VALUE
+                    : 2 * size + 1;
+            element = Arrays.copyOf(element, newSize); // Double the array
+        }
+    }
+    
+    private void shrink() {
+        int newSize = shrinkPolicy.newCapacity(size, element.length);
+        if (newSize < element.length) {
+            element = Arrays.copyOf(element, Math.max(newSize, size));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package stack;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.EmptyStackException;
+import java.util.Objects;
+
+/**
+ * Stack of fixed-width records stored off-heap in a direct ByteBuffer
+ * 
+ * Records are packed back to back outside the Java heap, so a deep stack adds
+ * nothing for the GC to scan or copy and holds no objects at all. Callers
+ * encode a record into a (reusable) ByteBuffer of recordSize bytes and push
+ * it; pop copies the top record back out.
+ * 
+ * A direct buffer can't grow in place: growing or shrinking copies into a new
+ * one, and the old one's native memory is freed when it is garbage collected.
+ */
+
+public class RecordStack {
+    // Initial number of records the stack can hold
+    private static final int INIT_SIZE = 16;
+    
+    private ByteBuffer element;
+    private final int recordSize;
+    
+    // Stack size, in records
+    private int size;
+    
+    // When to give memory back after a spike (capacities are in records)
+    private final ShrinkPolicy shrinkPolicy;
+    
+    public RecordStack(int recordSize) {
+        this(recordSize, ShrinkPolicy.NEVER);
+    }
+    
+    public RecordStack(int recordSize, ShrinkPolicy shrinkPolicy) {
+        if (recordSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.recordSize = recordSize;
+        this.shrinkPolicy = Objects.requireNonNull(shrinkPolicy);
+        element = ByteBuffer.allocateDirect(INIT_SIZE * recordSize);
+    }
+    
+    /**
+     * Pushes the next recordSize bytes of src, advancing its position
+     * 
+     * @param src
+     */
+    public void push(ByteBuffer src) {
+        if (src.remaining() < recordSize) {
+            throw new BufferUnderflowException();
+        }
+        ensureCapacity();
+        int limit = src.limit();
+        src.limit(src.position() + recordSize);
+        element.position(size * recordSize);
+        element.put(src);
+        src.limit(limit);
+        size++;
+    }
+    
+    /**
+     * Pops the top record into the next recordSize bytes of dst, advancing its position
+     * 
+     * @param dst
+     */
+    public void pop(ByteBuffer dst) {
+        peek(dst);
+        size--;
+        shrink();
+    }
+    
+    // Copies the top record into dst without removing it
+    public void peek(ByteBuffer dst) {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        if (dst.remaining() < recordSize) {
+            throw new BufferOverflowException();
+        }
+        copy((size - 1) * recordSize, recordSize, dst);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int recordSize() {
+        return recordSize;
+    }
+    
+    // Copies length bytes from index into dst and restores element's bounds
+    private void copy(int index, int length, ByteBuffer dst) {
+        element.limit(index + length).position(index);
+        dst.put(element);
+        element.clear();
+    }
+    
+    private void ensureCapacity() {
+        int capacity = element.capacity() / recordSize;
+        if (size == capacity) { // The buffer is full
+            int maxRecords = Integer.MAX_VALUE / recordSize;
+            if (capacity == maxRecords) {
+                throw new OutOfMemoryError("Stack is full: " + size + " records");
+            }
+            resize(capacity > (maxRecords - 1) / 2 ? maxRecords : 2 * capacity + 1);
+        }
+    }
+    
+    private void shrink() {
+        int capacity = element.capacity() / recordSize;
+        int newSize = shrinkPolicy.newCapacity(size, capacity);
+        if (newSize < capacity) {
+            resize(Math.max(newSize, size));
+        }
+    }
+    
+    private void resize(int records) {
+        ByteBuffer newElement = ByteBuffer.allocateDirect(records * recordSize);
+        copy(0, size * recordSize, newElement);
+        newElement.clear();
+        element = newElement;
+    }
+}
@@ -0,0 +1,101 @@
+package stack;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Build stack class atop of fixed-size chunks instead of one array
+ * 
+ * Growing adds a chunk rather than copying everything into an array twice
+ * the size, so there is no O(N) copy pause, no transient 2x footprint, and
+ * the size (a long) is not capped at Integer.MAX_VALUE. Only the chunk
+ * directory is ever copied, and it's tiny by comparison.
+ * 
+ * When pops empty a chunk it is kept as a spare and only the chunk past it
+ * is released, so pushing and popping around a chunk boundary doesn't
+ * allocate and free a chunk every time.
+ */
+
+public class SegmentedStack<E> {
+    // Default chunk of 2^14 references: 64KB-128KB, large enough that the directory stays small
+    private static final int DEFAULT_CHUNK_BITS = 14;
+    
+    // Initial number of directory slots
+    private static final int INIT_CHUNKS = 16;
+    
+    private final int chunkBits;
+    private final int chunkMask;
+    
+    // chunks[0, allocated) are allocated; the one at size >>> chunkBits may be the spare
+    private Object[][] chunks = new Object[INIT_CHUNKS][];
+    private int allocated;
+    
+    // Stack size
+    private long size;
+    
+    public SegmentedStack() {
+        this(DEFAULT_CHUNK_BITS);
+    }
+    
+    // Chunks hold 2^chunkBits elements
+    public SegmentedStack(int chunkBits) {
+        if (chunkBits < 1 || chunkBits > 30) {
+            throw new IllegalArgumentException("chunkBits not in [1, 30]: " + chunkBits);
+        }
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1 << chunkBits) - 1;
+    }
+    
+    public void push(E item) {
+        int chunk = (int) (size >>> chunkBits);
+        if (chunk == allocated) { // Top chunk full and no spare
+            addChunk();
+        }
+        chunks[chunk][(int) size & chunkMask] = item;
+        size++;
+    }
+    
+    public E pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        size--;
+        int chunk = (int) (size >>> chunkBits);
+        int index = (int) size & chunkMask;
+        @SuppressWarnings("unchecked")
+        E item = (E) chunks[chunk][index];
+        chunks[chunk][index] = null; // Eliminate obsolete reference
+        if (index == 0 && allocated > chunk + 1) { // chunk is now the spare; free the one past it
+            chunks[--allocated] = null;
+        }
+        return item;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        long top = size - 1;
+        return (E) chunks[(int) (top >>> chunkBits)][(int) top & chunkMask];
+    }
+    
+    public long size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    private void addChunk() {
+        if (allocated == chunks.length) {
+            if (allocated == Integer.MAX_VALUE - 8) {
+                throw new OutOfMemoryError("Stack size exceeds limit");
+            }
+            int newLength = allocated > (Integer.MAX_VALUE - 8) / 2 ? Integer.MAX_VALUE - 8 : 2 * allocated;
+            chunks = Arrays.copyOf(chunks, newLength); // Only the directory is copied
+        }
+        chunks[allocated++] = new Object[chunkMask + 1];
+    }
+}
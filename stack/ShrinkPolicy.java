@@ -0,0 +1,34 @@
+package stack;
+
+/**
+ * Decides when a stack gives memory back after a spike
+ * 
+ * Growing happens when the array is full; shrinking only once the stack has
+ * dropped well below the capacity (hysteresis), so pushes and pops around one
+ * boundary don't copy the array back and forth.
+ */
+public interface ShrinkPolicy {
+    // Never shrink: the array stays at its high-water mark
+    ShrinkPolicy NEVER = (size, capacity) -> capacity;
+    
+    /**
+     * Returns the capacity to shrink to after a pop, or capacity to keep it
+     * 
+     * @param size elements left
+     * @param capacity current array length
+     */
+    int newCapacity(int size, int capacity);
+    
+    /*
+     * Halve the array once it is at most a quarter full, never going below
+     * minCapacity. After a shrink the stack is half full, so it takes a
+     * quarter of the capacity in pushes or pops to trigger the next resize.
+     */
+    static ShrinkPolicy quarter(int minCapacity) {
+        if (minCapacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        return (size, capacity) -> capacity > minCapacity && size <= capacity / 4
+                ? Math.max(minCapacity, capacity / 2) : capacity;
+    }
+}
@@ -2,6 +2,7 @@ package stack;
 
 import java.util.Arrays;
 import java.util.EmptyStackException;
+import java.util.Objects;
 
 /**
  * Build stack class atop of array
@@ -17,14 +18,22 @@ public class Stack<E> {
     // Stack size
     private int size;
     
+    // When to give memory back after a spike
+    private final ShrinkPolicy shrinkPolicy;
+    
     /* 
      * push(E item) ensures the element array store always E type
      * Thus, it is safe to cast to E[] and ensure type safety
      * But the runtime type of the array will be always Object[] instead of E[]
      */
-    @SuppressWarnings("unchecked")
     public Stack() {
+        this(ShrinkPolicy.NEVER);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public Stack(ShrinkPolicy shrinkPolicy) {
         element = (E[]) new Object[INIT_SIZE];
+        this.shrinkPolicy = Objects.requireNonNull(shrinkPolicy); // not later, in pop
     }
     
     public void push(E item) {
@@ -38,6 +47,7 @@ public class Stack<E> {
         }
         E item = element[--size];
         element[size] = null; // Eliminate obsolete reference
+        shrink();
         return item;
     }
     
@@ -52,4 +62,11 @@ public class Stack<E> {
             element = Arrays.copyOf(element, newSize); // Double the array
         }
     }
+    
+    private void shrink() {
+        int newSize = shrinkPolicy.newCapacity(size, element.length);
+        if (newSize < element.length) {
+            element = Arrays.copyOf(element, Math.max(newSize, size));
+        }
+    }
 }
\ No newline at end of file